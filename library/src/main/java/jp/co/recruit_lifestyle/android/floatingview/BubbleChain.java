@@ -0,0 +1,206 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.graphics.Rect;
+import android.os.SystemClock;
+import android.view.WindowManager;
+
+import java.util.List;
+
+/**
+ * Follow-the-leader chain of the FloatingViews.<br/>
+ * All the followers are moved by one pass over a position array, each follower lagging the one ahead.
+ * No objects are allocated on the pass.
+ */
+class BubbleChain {
+
+    /**
+     * Fraction of the distance to the target moved in one frame(16ms)
+     */
+    private static final float FOLLOW_RATE = 0.35f;
+
+    /**
+     * Duration of one frame(ms)
+     */
+    private static final float FRAME_DURATION_MILLIS = 16.0f;
+
+    /**
+     * Distance regarded as converged(px)
+     */
+    private static final float CONVERGED_DISTANCE = 0.5f;
+
+    /**
+     * Leader of the chain
+     */
+    private FloatingView mLeader;
+
+    /**
+     * Followers(the first one follows the leader)
+     */
+    private FloatingView[] mFollowers;
+
+    /**
+     * Number of the followers
+     */
+    private int mFollowerCount;
+
+    /**
+     * Positions of the followers(x0, y0, x1, y1, ...)
+     */
+    private float[] mPositions;
+
+    /**
+     * Offset of Y coordinate from the one ahead(px)
+     */
+    private final int mSpacing;
+
+    /**
+     * Leader position X on the last pass
+     */
+    private int mLastLeaderX;
+
+    /**
+     * Leader position Y on the last pass
+     */
+    private int mLastLeaderY;
+
+    /**
+     * Time of the last pass(ms)
+     */
+    private long mLastStepTime;
+
+    /**
+     * Position limit of the follower(reused on each pass)
+     */
+    private final Rect mLimitRect;
+
+    /**
+     * Constructor
+     *
+     * @param spacing offset of Y coordinate from the one ahead(px)
+     */
+    BubbleChain(int spacing) {
+        mSpacing = spacing;
+        mFollowers = new FloatingView[0];
+        mPositions = new float[0];
+        mLimitRect = new Rect();
+    }
+
+    /**
+     * Set the members of the chain.<br/>
+     * The arrays are only reallocated when the number of the followers grows.
+     *
+     * @param leader           leader of the chain
+     * @param floatingViewList all the FloatingViews(in the order of the chain)
+     */
+    void setMembers(FloatingView leader, List<FloatingView> floatingViewList) {
+        final int size = floatingViewList.size();
+        if (mFollowers.length < size) {
+            mFollowers = new FloatingView[size];
+            mPositions = new float[size * 2];
+        }
+        mLeader = leader;
+        mFollowerCount = 0;
+        for (int i = 0; i < size; i++) {
+            final FloatingView floatingView = floatingViewList.get(i);
+            if (floatingView == leader) {
+                continue;
+            }
+            final WindowManager.LayoutParams params = floatingView.getWindowLayoutParams();
+            mFollowers[mFollowerCount] = floatingView;
+            mPositions[mFollowerCount * 2] = params.x;
+            mPositions[mFollowerCount * 2 + 1] = params.y;
+            mFollowerCount++;
+        }
+        for (int i = mFollowerCount; i < mFollowers.length; i++) {
+            mFollowers[i] = null;
+        }
+        mLastStepTime = 0;
+    }
+
+    /**
+     * Remove all the members.
+     */
+    void clear() {
+        mLeader = null;
+        for (int i = 0; i < mFollowerCount; i++) {
+            mFollowers[i] = null;
+        }
+        mFollowerCount = 0;
+    }
+
+    /**
+     * Check whether the FloatingView is the leader.
+     *
+     * @param floatingView FloatingView
+     * @return true if the leader
+     */
+    boolean isLeader(FloatingView floatingView) {
+        return mLeader == floatingView;
+    }
+
+    /**
+     * Move all the followers one step toward the one ahead.<br/>
+     * Each target is kept in the position limit of the follower(the same bounds as the drag and the snap), so the followers stay on the screen.
+     *
+     * @param snap true if the followers move to the targets at once
+     * @return true if the chain is still moving
+     */
+    boolean step(boolean snap) {
+        if (mLeader == null || mFollowerCount == 0) {
+            return false;
+        }
+        final long now = SystemClock.uptimeMillis();
+        final float elapsedTime = mLastStepTime == 0 ? FRAME_DURATION_MILLIS : Math.max(now - mLastStepTime, 1);
+        mLastStepTime = now;
+        // frame-rate independent rate
+        final float rate = snap ? 1.0f : (float) (1.0 - Math.pow(1.0 - FOLLOW_RATE, elapsedTime / FRAME_DURATION_MILLIS));
+
+        final WindowManager.LayoutParams leaderParams = mLeader.getWindowLayoutParams();
+        boolean isMoving = leaderParams.x != mLastLeaderX || leaderParams.y != mLastLeaderY;
+        mLastLeaderX = leaderParams.x;
+        mLastLeaderY = leaderParams.y;
+
+        float targetX = leaderParams.x;
+        float targetY = leaderParams.y - mSpacing;
+        final float[] positions = mPositions;
+        for (int i = 0; i < mFollowerCount; i++) {
+            final int index = i * 2;
+            // the limit is empty until the follower has been laid out
+            mFollowers[i].getPositionLimitRect(mLimitRect);
+            if (!mLimitRect.isEmpty()) {
+                targetX = Math.min(Math.max(mLimitRect.left, targetX), mLimitRect.right);
+                targetY = Math.min(Math.max(mLimitRect.top, targetY), mLimitRect.bottom);
+            }
+            final float dx = targetX - positions[index];
+            final float dy = targetY - positions[index + 1];
+            if (Math.abs(dx) < CONVERGED_DISTANCE && Math.abs(dy) < CONVERGED_DISTANCE) {
+                positions[index] = targetX;
+                positions[index + 1] = targetY;
+            } else {
+                positions[index] += dx * rate;
+                positions[index + 1] += dy * rate;
+                isMoving = true;
+            }
+            mFollowers[i].setWindowPosition(Math.round(positions[index]), Math.round(positions[index + 1]));
+            targetX = positions[index];
+            targetY = positions[index + 1] - mSpacing;
+        }
+        return isMoving;
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Membership of the group bubbles.<br/>
+ * A group bubble is the window of its anchor FloatingView, and the windows of the members are released while clustered.
+ */
+class BubbleClusters {
+
+    /**
+     * Members of each anchor
+     */
+    private final HashMap<FloatingView, ArrayList<FloatingView>> mMembersMap;
+
+    /**
+     * Anchor of each member
+     */
+    private final HashMap<FloatingView, FloatingView> mAnchorMap;
+
+    /**
+     * Constructor
+     */
+    BubbleClusters() {
+        mMembersMap = new HashMap<>();
+        mAnchorMap = new HashMap<>();
+    }
+
+    /**
+     * Add the FloatingView(and its members) to the cluster of the anchor.
+     *
+     * @param anchor       anchor of the cluster
+     * @param floatingView FloatingView to be clustered
+     * @return number of the members of the anchor
+     */
+    int add(FloatingView anchor, FloatingView floatingView) {
+        ArrayList<FloatingView> members = mMembersMap.get(anchor);
+        if (members == null) {
+            members = new ArrayList<>();
+            mMembersMap.put(anchor, members);
+        }
+        members.add(floatingView);
+        mAnchorMap.put(floatingView, anchor);
+        // the members of the FloatingView move to the anchor
+        final ArrayList<FloatingView> oldMembers = mMembersMap.remove(floatingView);
+        if (oldMembers != null) {
+            for (FloatingView member : oldMembers) {
+                members.add(member);
+                mAnchorMap.put(member, anchor);
+            }
+        }
+        return members.size();
+    }
+
+    /**
+     * Dissolve the cluster of the anchor.
+     *
+     * @param anchor anchor of the cluster
+     * @return members of the cluster(empty if none)
+     */
+    List<FloatingView> removeAnchor(FloatingView anchor) {
+        final ArrayList<FloatingView> members = mMembersMap.remove(anchor);
+        if (members == null) {
+            return new ArrayList<>();
+        }
+        for (FloatingView member : members) {
+            mAnchorMap.remove(member);
+        }
+        return members;
+    }
+
+    /**
+     * Remove the FloatingView from its cluster.
+     *
+     * @param floatingView member of the cluster
+     * @return anchor of the cluster(null if the FloatingView is not a member)
+     */
+    FloatingView removeMember(FloatingView floatingView) {
+        final FloatingView anchor = mAnchorMap.remove(floatingView);
+        if (anchor == null) {
+            return null;
+        }
+        final ArrayList<FloatingView> members = mMembersMap.get(anchor);
+        members.remove(floatingView);
+        if (members.isEmpty()) {
+            mMembersMap.remove(anchor);
+        }
+        return anchor;
+    }
+
+    /**
+     * Check whether the FloatingView is clustered into the other one.
+     *
+     * @param floatingView FloatingView
+     * @return true if the window of the FloatingView is released by the cluster
+     */
+    boolean isMember(FloatingView floatingView) {
+        return mAnchorMap.containsKey(floatingView);
+    }
+
+    /**
+     * Check whether the FloatingView has the members.
+     *
+     * @param floatingView FloatingView
+     * @return true if the FloatingView is a group bubble
+     */
+    boolean isAnchor(FloatingView floatingView) {
+        return mMembersMap.containsKey(floatingView);
+    }
+
+    /**
+     * Get the number of the clustered FloatingViews.
+     *
+     * @return number of the members of all the clusters
+     */
+    int getMemberCount() {
+        return mAnchorMap.size();
+    }
+
+    /**
+     * Get the number of the members of the anchor.
+     *
+     * @param anchor anchor of the cluster
+     * @return number of the members(0 if the FloatingView is not a group bubble)
+     */
+    int getMemberCount(FloatingView anchor) {
+        final ArrayList<FloatingView> members = mMembersMap.get(anchor);
+        return members == null ? 0 : members.size();
+    }
+
+    /**
+     * Dissolve all the clusters.
+     */
+    void clear() {
+        mMembersMap.clear();
+        mAnchorMap.clear();
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.Nullable;
+
+/**
+ * Lightweight content of the FloatingView(avatar and badge count).<br/>
+ * The avatar, the shape clip({@link FloatingViewManager.Options#shape}) and the badge are drawn in one view without child views.
+ * Use {@link FloatingViewManager#addViewToWindow(BubbleContent, FloatingViewManager.Options)} to attach it.<br/>
+ * Setters must be called on the main thread.
+ */
+public class BubbleContent {
+
+    /**
+     * Default color of the badge
+     */
+    private static final int DEFAULT_BADGE_COLOR = 0xFFF44336;
+
+    /**
+     * Avatar
+     */
+    private Bitmap mAvatar;
+
+    /**
+     * Badge count(the badge is hidden if 0)
+     */
+    private int mBadgeCount;
+
+    /**
+     * Color of the badge
+     */
+    @ColorInt
+    private int mBadgeColor;
+
+    /**
+     * Text color of the badge
+     */
+    @ColorInt
+    private int mBadgeTextColor;
+
+    /**
+     * View drawing this content
+     */
+    private BubbleContentView mBubbleContentView;
+
+    /**
+     * Constructor
+     *
+     * @param avatar avatar bitmap
+     */
+    public BubbleContent(@Nullable Bitmap avatar) {
+        mAvatar = avatar;
+        mBadgeColor = DEFAULT_BADGE_COLOR;
+        mBadgeTextColor = Color.WHITE;
+    }
+
+    /**
+     * Set the avatar.
+     *
+     * @param avatar avatar bitmap
+     */
+    public void setAvatar(@Nullable Bitmap avatar) {
+        if (mAvatar == avatar) {
+            return;
+        }
+        mAvatar = avatar;
+        if (mBubbleContentView != null) {
+            mBubbleContentView.onAvatarChanged();
+        }
+    }
+
+    /**
+     * Get the avatar.
+     *
+     * @return avatar bitmap
+     */
+    @Nullable
+    public Bitmap getAvatar() {
+        return mAvatar;
+    }
+
+    /**
+     * Set the badge count.<br/>
+     * Only the badge region is redrawn.
+     *
+     * @param badgeCount badge count(the badge is hidden if 0 or less)
+     */
+    public void setBadgeCount(int badgeCount) {
+        final int newBadgeCount = Math.max(badgeCount, 0);
+        if (mBadgeCount == newBadgeCount) {
+            return;
+        }
+        mBadgeCount = newBadgeCount;
+        if (mBubbleContentView != null) {
+            mBubbleContentView.onBadgeChanged();
+        }
+    }
+
+    /**
+     * Get the badge count.
+     *
+     * @return badge count
+     */
+    public int getBadgeCount() {
+        return mBadgeCount;
+    }
+
+    /**
+     * Set the colors of the badge.
+     *
+     * @param badgeColor     color of the badge
+     * @param badgeTextColor text color of the badge
+     */
+    public void setBadgeColors(@ColorInt int badgeColor, @ColorInt int badgeTextColor) {
+        mBadgeColor = badgeColor;
+        mBadgeTextColor = badgeTextColor;
+        if (mBubbleContentView != null) {
+            mBubbleContentView.onBadgeChanged();
+        }
+    }
+
+    /**
+     * Get the color of the badge.
+     *
+     * @return color of the badge
+     */
+    @ColorInt
+    public int getBadgeColor() {
+        return mBadgeColor;
+    }
+
+    /**
+     * Get the text color of the badge.
+     *
+     * @return text color of the badge
+     */
+    @ColorInt
+    public int getBadgeTextColor() {
+        return mBadgeTextColor;
+    }
+
+    /**
+     * Set the view drawing this content.
+     *
+     * @param bubbleContentView {@link BubbleContentView}(null to unbind)
+     */
+    void setBubbleContentView(@Nullable BubbleContentView bubbleContentView) {
+        mBubbleContentView = bubbleContentView;
+    }
+}
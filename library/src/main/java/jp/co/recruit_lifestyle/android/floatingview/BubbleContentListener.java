@@ -0,0 +1,39 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+/**
+ * Listener of the lightweight contents, used by {@link LocalFloatingViewHost}.<br/>
+ * The callbacks are called on the UI thread at the time of the event, regardless of {@link FloatingViewManager#setListenerDispatchMode(int)}.
+ */
+interface BubbleContentListener {
+
+    /**
+     * Callback when the touch of the lightweight content has finished.
+     *
+     * @param bubbleContent {@link BubbleContent} of the touched FloatingView
+     * @param isFinishing   true if the FloatingView is being deleted
+     * @param x             last X position of the window
+     * @param y             last Y position of the window
+     */
+    void onBubbleTouchFinished(BubbleContent bubbleContent, boolean isFinishing, int x, int y);
+
+    /**
+     * Callback when all the FloatingViews have been removed.
+     */
+    void onAllBubblesRemoved();
+}
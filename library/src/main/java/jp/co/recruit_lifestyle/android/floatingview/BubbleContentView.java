@@ -0,0 +1,348 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+
+/**
+ * View drawing the {@link BubbleContent}.<br/>
+ * The avatar is drawn with a BitmapShader clipped by the shape, and the badge is drawn over it.
+ */
+class BubbleContentView extends View {
+
+    /**
+     * Minimum size of the badge(dp)
+     */
+    private static final float BADGE_SIZE = 20.0f;
+
+    /**
+     * Horizontal padding of the badge text(dp)
+     */
+    private static final float BADGE_TEXT_PADDING = 5.0f;
+
+    /**
+     * Text size of the badge(dp)
+     */
+    private static final float BADGE_TEXT_SIZE = 11.0f;
+
+    /**
+     * Maximum badge count displayed as is
+     */
+    private static final int MAX_BADGE_COUNT = 99;
+
+    /**
+     * Text displayed when the badge count is over the maximum
+     */
+    private static final String MAX_BADGE_COUNT_TEXT = "99+";
+
+    /**
+     * cos(45°)
+     */
+    private static final float COS_45 = 0.7071f;
+
+    /**
+     * BubbleContent
+     */
+    private final BubbleContent mBubbleContent;
+
+    /**
+     * SHAPE_CIRCLE or SHAPE_RECTANGLE
+     */
+    private final float mShape;
+
+    /**
+     * Density
+     */
+    private final float mDensity;
+
+    /**
+     * Paint of the avatar
+     */
+    private final Paint mAvatarPaint;
+
+    /**
+     * Matrix of the avatar shader(center crop)
+     */
+    private final Matrix mAvatarMatrix;
+
+    /**
+     * Avatar set to the shader
+     */
+    private Bitmap mShaderAvatar;
+
+    /**
+     * Paint of the badge
+     */
+    private final Paint mBadgePaint;
+
+    /**
+     * Paint of the badge text
+     */
+    private final Paint mBadgeTextPaint;
+
+    /**
+     * Badge text
+     */
+    private String mBadgeText;
+
+    /**
+     * Badge rect
+     */
+    private final RectF mBadgeRect;
+
+    /**
+     * Dirty rect of the badge(reused for the invalidation)
+     */
+    private final Rect mBadgeDirtyRect;
+
+    /**
+     * New badge rect(reused for the invalidation)
+     */
+    private final Rect mNewBadgeRect;
+
+    /**
+     * Constructor
+     *
+     * @param context       Context
+     * @param bubbleContent BubbleContent
+     * @param shape         SHAPE_CIRCLE or SHAPE_RECTANGLE
+     */
+    BubbleContentView(Context context, BubbleContent bubbleContent, float shape) {
+        super(context);
+        mBubbleContent = bubbleContent;
+        mShape = shape;
+        mDensity = context.getResources().getDisplayMetrics().density;
+        mAvatarPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+        mAvatarMatrix = new Matrix();
+        mBadgePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mBadgeTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mBadgeTextPaint.setTextAlign(Paint.Align.CENTER);
+        mBadgeTextPaint.setTextSize(BADGE_TEXT_SIZE * mDensity);
+        mBadgeTextPaint.setTypeface(Typeface.DEFAULT_BOLD);
+        mBadgeRect = new RectF();
+        mBadgeDirtyRect = new Rect();
+        mNewBadgeRect = new Rect();
+        mBubbleContent.setBubbleContentView(this);
+    }
+
+    /**
+     * Get the content drawn by this view.
+     *
+     * @return BubbleContent
+     */
+    BubbleContent getBubbleContent() {
+        return mBubbleContent;
+    }
+
+    /**
+     * Bind to the BubbleContent and apply the changes made while detached(the size may be the same).
+     */
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mBubbleContent.setBubbleContentView(this);
+        updateAvatarShader();
+        updateBadge();
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onDetachedFromWindow() {
+        mBubbleContent.setBubbleContentView(null);
+        super.onDetachedFromWindow();
+    }
+
+    /**
+     * The size is the avatar size on WRAP_CONTENT.
+     */
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        final Bitmap avatar = mBubbleContent.getAvatar();
+        final int avatarWidth = avatar != null ? avatar.getWidth() : 0;
+        final int avatarHeight = avatar != null ? avatar.getHeight() : 0;
+        setMeasuredDimension(resolveSize(Math.max(avatarWidth, getSuggestedMinimumWidth()), widthMeasureSpec),
+                resolveSize(Math.max(avatarHeight, getSuggestedMinimumHeight()), heightMeasureSpec));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        updateAvatarShader();
+        updateBadge();
+    }
+
+    /**
+     * Draw the avatar and the badge.
+     */
+    @Override
+    protected void onDraw(Canvas canvas) {
+        final int width = getWidth();
+        final int height = getHeight();
+
+        // avatar
+        if (mShaderAvatar != null) {
+            if (mShape == FloatingViewManager.SHAPE_CIRCLE) {
+                canvas.drawCircle(width / 2f, height / 2f, Math.min(width, height) / 2f, mAvatarPaint);
+            } else {
+                canvas.drawRect(0, 0, width, height, mAvatarPaint);
+            }
+        }
+
+        // badge
+        if (mBadgeText != null) {
+            final float radius = mBadgeRect.height() / 2;
+            canvas.drawRoundRect(mBadgeRect, radius, radius, mBadgePaint);
+            final float baseline = mBadgeRect.centerY() - (mBadgeTextPaint.descent() + mBadgeTextPaint.ascent()) / 2;
+            canvas.drawText(mBadgeText, mBadgeRect.centerX(), baseline, mBadgeTextPaint);
+        }
+    }
+
+    /**
+     * Check whether the current thread is not the thread where the window is attached(the dedicated UI thread).
+     *
+     * @return true if the change must be posted to the view
+     */
+    private boolean isOffViewThread() {
+        final Handler handler = getHandler();
+        return handler != null && handler.getLooper() != Looper.myLooper();
+    }
+
+    /**
+     * Called when the avatar of the BubbleContent has changed.
+     */
+    void onAvatarChanged() {
+        if (isOffViewThread()) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    onAvatarChanged();
+                }
+            });
+            return;
+        }
+        requestLayout();
+        updateAvatarShader();
+        invalidate();
+    }
+
+    /**
+     * Called when the badge of the BubbleContent has changed.<br/>
+     * Only the union of the old and new badge rect is invalidated.
+     */
+    void onBadgeChanged() {
+        if (isOffViewThread()) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    onBadgeChanged();
+                }
+            });
+            return;
+        }
+        mBadgeRect.roundOut(mBadgeDirtyRect);
+        final boolean hadBadge = mBadgeText != null;
+        updateBadge();
+        if (mBadgeText != null) {
+            mBadgeRect.roundOut(mNewBadgeRect);
+            if (hadBadge) {
+                mBadgeDirtyRect.union(mNewBadgeRect);
+            } else {
+                mBadgeDirtyRect.set(mNewBadgeRect);
+            }
+        } else if (!hadBadge) {
+            return;
+        }
+        //noinspection deprecation
+        invalidate(mBadgeDirtyRect.left, mBadgeDirtyRect.top, mBadgeDirtyRect.right, mBadgeDirtyRect.bottom);
+    }
+
+    /**
+     * Update the avatar shader(center crop to the view size).
+     */
+    private void updateAvatarShader() {
+        final Bitmap avatar = mBubbleContent.getAvatar();
+        final int width = getWidth();
+        final int height = getHeight();
+        if (avatar == null || width <= 0 || height <= 0) {
+            mShaderAvatar = null;
+            mAvatarPaint.setShader(null);
+            return;
+        }
+        if (mShaderAvatar != avatar) {
+            mShaderAvatar = avatar;
+            mAvatarPaint.setShader(new BitmapShader(avatar, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+        }
+        final float scale = Math.max(width / (float) avatar.getWidth(), height / (float) avatar.getHeight());
+        mAvatarMatrix.setScale(scale, scale);
+        mAvatarMatrix.postTranslate((width - avatar.getWidth() * scale) / 2, (height - avatar.getHeight() * scale) / 2);
+        mAvatarPaint.getShader().setLocalMatrix(mAvatarMatrix);
+    }
+
+    /**
+     * Update the badge text and rect.<br/>
+     * The badge is placed on the upper right of the shape, inside the view.
+     */
+    private void updateBadge() {
+        final int badgeCount = mBubbleContent.getBadgeCount();
+        mBadgePaint.setColor(mBubbleContent.getBadgeColor());
+        mBadgeTextPaint.setColor(mBubbleContent.getBadgeTextColor());
+        if (badgeCount <= 0) {
+            mBadgeText = null;
+            mBadgeRect.setEmpty();
+            return;
+        }
+        mBadgeText = badgeCount > MAX_BADGE_COUNT ? MAX_BADGE_COUNT_TEXT : String.valueOf(badgeCount);
+
+        final int width = getWidth();
+        final int height = getHeight();
+        final float badgeHeight = BADGE_SIZE * mDensity;
+        final float badgeWidth = Math.max(badgeHeight, mBadgeTextPaint.measureText(mBadgeText) + BADGE_TEXT_PADDING * 2 * mDensity);
+        // upper right point of the shape
+        float centerX;
+        float centerY;
+        if (mShape == FloatingViewManager.SHAPE_CIRCLE) {
+            final float radius = Math.min(width, height) / 2f;
+            centerX = width / 2f + radius * COS_45;
+            centerY = height / 2f - radius * COS_45;
+        } else {
+            centerX = width - badgeWidth / 2;
+            centerY = badgeHeight / 2;
+        }
+        centerX = Math.min(Math.max(centerX, badgeWidth / 2), width - badgeWidth / 2);
+        centerY = Math.min(Math.max(centerY, badgeHeight / 2), height - badgeHeight / 2);
+        mBadgeRect.set(centerX - badgeWidth / 2, centerY - badgeHeight / 2, centerX + badgeWidth / 2, centerY + badgeHeight / 2);
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.graphics.Rect;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Spatial index of the window bounds of the FloatingViews.<br/>
+ * Updated when the window layout is committed, so the proximity queries do not scan all the FloatingViews.
+ */
+class BubbleIndex {
+
+    /**
+     * Grid of the FloatingViews
+     */
+    private final SpatialGrid<FloatingView> mGrid;
+
+    /**
+     * Indexed bounds of the FloatingViews
+     */
+    private final HashMap<FloatingView, Rect> mBoundsMap;
+
+    /**
+     * Bounds of the query(reused)
+     */
+    private final Rect mQueryRect;
+
+    /**
+     * Bounds of the FloatingView(reused)
+     */
+    private final Rect mTempRect;
+
+    /**
+     * Candidates of the query(reused)
+     */
+    private final ArrayList<FloatingView> mCandidates;
+
+    /**
+     * Constructor
+     *
+     * @param cellSize size of a cell(px)
+     */
+    BubbleIndex(int cellSize) {
+        mGrid = new SpatialGrid<>(cellSize);
+        mBoundsMap = new HashMap<>();
+        mQueryRect = new Rect();
+        mTempRect = new Rect();
+        mCandidates = new ArrayList<>();
+    }
+
+    /**
+     * Add or update the bounds of the FloatingView.
+     *
+     * @param floatingView FloatingView
+     */
+    void update(FloatingView floatingView) {
+        floatingView.getWindowLayoutRect(mTempRect);
+        final Rect bounds = mBoundsMap.get(floatingView);
+        if (bounds == null) {
+            mBoundsMap.put(floatingView, new Rect(mTempRect));
+            mGrid.insert(floatingView, mTempRect);
+            return;
+        }
+        if (bounds.equals(mTempRect)) {
+            return;
+        }
+        mGrid.move(floatingView, bounds, mTempRect);
+        bounds.set(mTempRect);
+    }
+
+    /**
+     * Remove the FloatingView.
+     *
+     * @param floatingView FloatingView
+     */
+    void remove(FloatingView floatingView) {
+        final Rect bounds = mBoundsMap.remove(floatingView);
+        if (bounds != null) {
+            mGrid.remove(floatingView, bounds);
+        }
+    }
+
+    /**
+     * Remove all the FloatingViews.
+     */
+    void clear() {
+        mBoundsMap.clear();
+        mGrid.clear();
+    }
+
+    /**
+     * Get the FloatingViews overlapping or near the FloatingView(not including itself).
+     *
+     * @param floatingView FloatingView
+     * @param distance     distance from the bounds(px). 0 is the overlapping ones only
+     * @param outList      list to receive the FloatingViews(not cleared)
+     */
+    void queryNear(FloatingView floatingView, int distance, List<FloatingView> outList) {
+        final Rect bounds = mBoundsMap.get(floatingView);
+        if (bounds == null) {
+            return;
+        }
+        mQueryRect.set(bounds);
+        mQueryRect.inset(-distance, -distance);
+        final ArrayList<FloatingView> candidates = mCandidates;
+        candidates.clear();
+        mGrid.query(mQueryRect, candidates);
+        final int size = candidates.size();
+        for (int i = 0; i < size; i++) {
+            final FloatingView candidate = candidates.get(i);
+            if (candidate == floatingView) {
+                continue;
+            }
+            if (Rect.intersects(mQueryRect, mBoundsMap.get(candidate))) {
+                outList.add(candidate);
+            }
+        }
+        candidates.clear();
+    }
+
+    /**
+     * Get the FloatingView nearest to the center of the FloatingView among the overlapping ones.
+     *
+     * @param floatingView FloatingView
+     * @return overlapping FloatingView or null
+     */
+    FloatingView findNearestOverlap(FloatingView floatingView) {
+        final Rect bounds = mBoundsMap.get(floatingView);
+        if (bounds == null) {
+            return null;
+        }
+        final int centerX = bounds.centerX();
+        final int centerY = bounds.centerY();
+        final ArrayList<FloatingView> candidates = mCandidates;
+        candidates.clear();
+        mGrid.query(bounds, candidates);
+        FloatingView nearestFloatingView = null;
+        long nearestDistance = Long.MAX_VALUE;
+        final int size = candidates.size();
+        for (int i = 0; i < size; i++) {
+            final FloatingView candidate = candidates.get(i);
+            final Rect candidateBounds = mBoundsMap.get(candidate);
+            if (candidate == floatingView || !Rect.intersects(bounds, candidateBounds)) {
+                continue;
+            }
+            final long dx = candidateBounds.centerX() - centerX;
+            final long dy = candidateBounds.centerY() - centerY;
+            final long distance = dx * dx + dy * dy;
+            if (distance < nearestDistance) {
+                nearestDistance = distance;
+                nearestFloatingView = candidate;
+            }
+        }
+        candidates.clear();
+        return nearestFloatingView;
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.view.View;
+
+/**
+ * Listener of the overlap between the dragged bubble and the other bubbles.<br/>
+ * The views are the ones passed to {@link FloatingViewManager#addViewToWindow(View, FloatingViewManager.Options)}.
+ */
+public interface BubbleOverlapListener {
+
+    /**
+     * Callback when the dragged bubble has started to overlap the other bubble.
+     *
+     * @param draggedView dragged view
+     * @param targetView  overlapped view
+     */
+    void onBubbleOverlapEntered(View draggedView, View targetView);
+
+    /**
+     * Callback when the dragged bubble has stopped overlapping the other bubble.
+     *
+     * @param draggedView dragged view
+     * @param targetView  overlapped view
+     */
+    void onBubbleOverlapExited(View draggedView, View targetView);
+
+    /**
+     * Callback when the dragged bubble has been released over the other bubble(e.g. merge or swap).
+     *
+     * @param draggedView dragged view
+     * @param targetView  overlapped view
+     */
+    void onBubbleDropped(View draggedView, View targetView);
+}
@@ -0,0 +1,178 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.os.Build;
+import android.os.Handler;
+
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lock-free queue of the commands from the other threads, applied on the UI thread once per frame.<br/>
+ * The commands with the same key are collapsed, and only the last one is applied(at the position of the last one).
+ */
+class CommandQueue {
+
+    /**
+     * Command
+     */
+    private static class Command {
+
+        /**
+         * Key to collapse the commands(null if not collapsed)
+         */
+        final String key;
+
+        /**
+         * Task
+         */
+        final Runnable task;
+
+        /**
+         * Constructor
+         *
+         * @param key  key to collapse the commands
+         * @param task task
+         */
+        Command(String key, Runnable task) {
+            this.key = key;
+            this.task = task;
+        }
+    }
+
+    /**
+     * Queued commands
+     */
+    private final ConcurrentLinkedQueue<Command> mQueue;
+
+    /**
+     * Last command of each key
+     */
+    private final ConcurrentHashMap<String, Command> mLatestCommands;
+
+    /**
+     * True if the drain has been scheduled
+     */
+    private final AtomicBoolean mIsScheduled;
+
+    /**
+     * Handler of the UI thread
+     */
+    private final Handler mHandler;
+
+    /**
+     * Ticker to drain the queue on the next frame(null before API 16)
+     */
+    private final FrameTicker mDrainTicker;
+
+    /**
+     * Task to schedule the drain on the UI thread
+     */
+    private final Runnable mScheduleTask;
+
+    /**
+     * True while draining(UI thread only)
+     */
+    private boolean mIsDraining;
+
+    /**
+     * Constructor
+     *
+     * @param handler Handler of the UI thread
+     */
+    CommandQueue(Handler handler) {
+        mQueue = new ConcurrentLinkedQueue<>();
+        mLatestCommands = new ConcurrentHashMap<>();
+        mIsScheduled = new AtomicBoolean();
+        mHandler = handler;
+        final Runnable drainTask = new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        };
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mDrainTicker = new FrameTicker(drainTask);
+            mScheduleTask = new Runnable() {
+                @Override
+                public void run() {
+                    // INFO:Choreographer is bound to the UI thread
+                    mDrainTicker.requestFrame();
+                }
+            };
+        } else {
+            mDrainTicker = null;
+            mScheduleTask = drainTask;
+        }
+    }
+
+    /**
+     * Queue the command(any thread).
+     *
+     * @param key  key to collapse the commands(null if not collapsed)
+     * @param task task
+     */
+    void enqueue(@Nullable String key, Runnable task) {
+        final Command command = new Command(key, task);
+        if (key != null) {
+            mLatestCommands.put(key, command);
+        }
+        mQueue.offer(command);
+        if (mIsScheduled.compareAndSet(false, true)) {
+            mHandler.post(mScheduleTask);
+        }
+    }
+
+    /**
+     * Apply all the queued commands(UI thread only).<br/>
+     * Nothing is done if called from the applied command.
+     */
+    void drain() {
+        if (mIsDraining) {
+            return;
+        }
+        mIsScheduled.set(false);
+        if (mDrainTicker != null) {
+            mDrainTicker.cancel();
+        }
+        mIsDraining = true;
+        try {
+            Command command;
+            while ((command = mQueue.poll()) != null) {
+                // a newer command of the same key follows
+                if (command.key != null && !mLatestCommands.remove(command.key, command)) {
+                    continue;
+                }
+                command.task.run();
+            }
+        } finally {
+            mIsDraining = false;
+        }
+    }
+
+    /**
+     * Discard all the queued commands.
+     */
+    void clear() {
+        mQueue.clear();
+        mLatestCommands.clear();
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.graphics.Rect;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Region where the FloatingView can be dropped(e.g. "minimize", "send to app").<br/>
+ * The bounds use the same coordinates as {@link FloatingViewManager.Options#floatingViewX}(origin at the bottom left of the screen, upward is plus).
+ * While the center of the dragged FloatingView is within the magnetic radius of the bounds, the FloatingView snaps to the center of the target.
+ */
+public class DropTarget {
+
+    /**
+     * ID
+     */
+    private final int mId;
+
+    /**
+     * Bounds
+     */
+    private final Rect mBounds;
+
+    /**
+     * Magnetic radius(px)
+     */
+    private final int mMagneticRadius;
+
+    /**
+     * Constructor
+     *
+     * @param id             ID of the target(passed back to {@link DropTargetListener})
+     * @param bounds         bounds of the target
+     * @param magneticRadius distance from the bounds within which the FloatingView is captured(px)
+     */
+    public DropTarget(int id, @NonNull Rect bounds, int magneticRadius) {
+        mId = id;
+        mBounds = new Rect(bounds);
+        mMagneticRadius = Math.max(magneticRadius, 0);
+    }
+
+    /**
+     * Get the ID.
+     *
+     * @return ID
+     */
+    public int getId() {
+        return mId;
+    }
+
+    /**
+     * Get the bounds.
+     *
+     * @param outRect Rect to receive the bounds
+     */
+    public void getBounds(@NonNull Rect outRect) {
+        outRect.set(mBounds);
+    }
+
+    /**
+     * Get the magnetic radius.
+     *
+     * @return magnetic radius(px)
+     */
+    public int getMagneticRadius() {
+        return mMagneticRadius;
+    }
+
+    /**
+     * Get the center X coordinate.
+     *
+     * @return center X coordinate
+     */
+    int getCenterX() {
+        return mBounds.centerX();
+    }
+
+    /**
+     * Get the center Y coordinate.
+     *
+     * @return center Y coordinate
+     */
+    int getCenterY() {
+        return mBounds.centerY();
+    }
+
+    /**
+     * Get the bounds expanded by the magnetic radius(used for the spatial index).
+     *
+     * @param outRect Rect to receive the bounds
+     */
+    void getCaptureBounds(@NonNull Rect outRect) {
+        outRect.set(mBounds);
+        outRect.inset(-mMagneticRadius, -mMagneticRadius);
+    }
+
+    /**
+     * Get the squared distance from the point to the bounds.
+     *
+     * @param x X coordinate
+     * @param y Y coordinate
+     * @return squared distance(0 if the point is in the bounds)
+     */
+    long getDistanceSquared(int x, int y) {
+        final long dx = Math.max(Math.max(mBounds.left - x, 0), x - mBounds.right);
+        final long dy = Math.max(Math.max(mBounds.top - y, 0), y - mBounds.bottom);
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Check whether the point is within the magnetic radius.
+     *
+     * @param x X coordinate
+     * @param y Y coordinate
+     * @return true if captured
+     */
+    boolean isCaptured(int x, int y) {
+        return getDistanceSquared(x, y) <= (long) mMagneticRadius * mMagneticRadius;
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+/**
+ * Listener of the {@link DropTarget}.
+ */
+public interface DropTargetListener {
+
+    /**
+     * Callback when the dragged FloatingView has been captured by the target.
+     *
+     * @param dropTarget DropTarget
+     */
+    void onDropTargetEntered(DropTarget dropTarget);
+
+    /**
+     * Callback when the dragged FloatingView has left the target.
+     *
+     * @param dropTarget DropTarget
+     */
+    void onDropTargetExited(DropTarget dropTarget);
+
+    /**
+     * Callback when the FloatingView has been dropped on the target.<br/>
+     * The FloatingView moves back to the edge after this callback.
+     *
+     * @param dropTarget DropTarget
+     */
+    void onDropped(DropTarget dropTarget);
+}
@@ -0,0 +1,213 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Allocator of the slots along the left and right edges.<br/>
+ * The slots of each edge are kept in a TreeMap ordered by the position, so a settling bubble gets the free position
+ * nearest to its goal and the insert and remove are O(log N).
+ *
+ * @param <T> owner type
+ */
+class EdgeSlotAllocator<T> {
+
+    /**
+     * Slot on the edge
+     */
+    private static class Slot<T> {
+
+        /**
+         * Owner of the slot
+         */
+        final T owner;
+
+        /**
+         * True if the slot is on the right edge
+         */
+        final boolean isRightEdge;
+
+        /**
+         * Start position(inclusive)
+         */
+        final int start;
+
+        /**
+         * End position(exclusive)
+         */
+        final int end;
+
+        /**
+         * Constructor
+         *
+         * @param owner       owner of the slot
+         * @param isRightEdge true if the slot is on the right edge
+         * @param start       start position
+         * @param end         end position
+         */
+        Slot(T owner, boolean isRightEdge, int start, int end) {
+            this.owner = owner;
+            this.isRightEdge = isRightEdge;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Slots on the left edge(key is the start position)
+     */
+    private final TreeMap<Integer, Slot<T>> mLeftSlots;
+
+    /**
+     * Slots on the right edge(key is the start position)
+     */
+    private final TreeMap<Integer, Slot<T>> mRightSlots;
+
+    /**
+     * Slot of each owner
+     */
+    private final HashMap<T, Slot<T>> mOwnerSlots;
+
+    /**
+     * Constructor
+     */
+    EdgeSlotAllocator() {
+        mLeftSlots = new TreeMap<>();
+        mRightSlots = new TreeMap<>();
+        mOwnerSlots = new HashMap<>();
+    }
+
+    /**
+     * Allocate the free slot nearest to the goal position.<br/>
+     * The previous slot of the owner is released. If there is no free space, the goal position is returned as is.
+     *
+     * @param owner        owner of the slot
+     * @param isRightEdge  true if the right edge
+     * @param goalPosition goal position
+     * @param size         size of the slot
+     * @param minPosition  minimum position
+     * @param maxPosition  maximum position(start of the slot)
+     * @return allocated position
+     */
+    int allocate(T owner, boolean isRightEdge, int goalPosition, int size, int minPosition, int maxPosition) {
+        release(owner);
+        final TreeMap<Integer, Slot<T>> slots = isRightEdge ? mRightSlots : mLeftSlots;
+        final int length = Math.max(size, 1);
+        final int goal = Math.min(Math.max(minPosition, goalPosition), Math.max(minPosition, maxPosition));
+
+        // search upward
+        int upperPosition = goal;
+        while (upperPosition <= maxPosition) {
+            final Slot<T> conflict = findLastConflict(slots, upperPosition, length);
+            if (conflict == null) {
+                break;
+            }
+            upperPosition = conflict.end;
+        }
+        // search downward
+        int lowerPosition = goal;
+        while (lowerPosition >= minPosition) {
+            final Slot<T> conflict = findFirstConflict(slots, lowerPosition, length);
+            if (conflict == null) {
+                break;
+            }
+            lowerPosition = conflict.start - length;
+        }
+
+        final boolean hasUpper = upperPosition <= maxPosition;
+        final boolean hasLower = lowerPosition >= minPosition;
+        final int position;
+        if (hasUpper && hasLower) {
+            position = upperPosition - goal <= goal - lowerPosition ? upperPosition : lowerPosition;
+        } else if (hasUpper) {
+            position = upperPosition;
+        } else if (hasLower) {
+            position = lowerPosition;
+        } else {
+            // no free space(overlaps the others)
+            return goal;
+        }
+
+        final Slot<T> slot = new Slot<>(owner, isRightEdge, position, position + length);
+        slots.put(position, slot);
+        mOwnerSlots.put(owner, slot);
+        return position;
+    }
+
+    /**
+     * Release the slot of the owner.
+     *
+     * @param owner owner of the slot
+     */
+    void release(T owner) {
+        final Slot<T> slot = mOwnerSlots.remove(owner);
+        if (slot == null) {
+            return;
+        }
+        final TreeMap<Integer, Slot<T>> slots = slot.isRightEdge ? mRightSlots : mLeftSlots;
+        slots.remove(slot.start);
+    }
+
+    /**
+     * Release all the slots.
+     */
+    void clear() {
+        mLeftSlots.clear();
+        mRightSlots.clear();
+        mOwnerSlots.clear();
+    }
+
+    /**
+     * Find the conflicting slot with the largest position.<br/>
+     * The slots do not overlap each other, so the slots ordered by the start are also ordered by the end.
+     *
+     * @param slots    slots of the edge
+     * @param position start position
+     * @param length   length
+     * @return conflicting slot or null
+     */
+    private static <T> Slot<T> findLastConflict(TreeMap<Integer, Slot<T>> slots, int position, int length) {
+        final Map.Entry<Integer, Slot<T>> entry = slots.lowerEntry(position + length);
+        if (entry == null || entry.getValue().end <= position) {
+            return null;
+        }
+        return entry.getValue();
+    }
+
+    /**
+     * Find the conflicting slot with the smallest position.
+     *
+     * @param slots    slots of the edge
+     * @param position start position
+     * @param length   length
+     * @return conflicting slot or null
+     */
+    private static <T> Slot<T> findFirstConflict(TreeMap<Integer, Slot<T>> slots, int position, int length) {
+        final Map.Entry<Integer, Slot<T>> floorEntry = slots.floorEntry(position);
+        if (floorEntry != null && floorEntry.getValue().end > position) {
+            return floorEntry.getValue();
+        }
+        final Map.Entry<Integer, Slot<T>> ceilingEntry = slots.ceilingEntry(position);
+        if (ceilingEntry != null && ceilingEntry.getKey() < position + length) {
+            return ceilingEntry.getValue();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+/**
+ * Resolver of the position along the edge where the FloatingView settles.
+ */
+interface EdgeSlotResolver {
+
+    /**
+     * Get the free position along the edge nearest to the goal position.
+     *
+     * @param floatingView  FloatingView
+     * @param isRightEdge   true if the right edge
+     * @param goalPositionY goal position(Y coordinate)
+     * @param minPositionY  minimum position(Y coordinate)
+     * @param maxPositionY  maximum position(Y coordinate)
+     * @return position(Y coordinate)
+     */
+    int resolveEdgeSlot(FloatingView floatingView, boolean isRightEdge, int goalPositionY, int minPositionY, int maxPositionY);
+
+    /**
+     * Release the position along the edge.
+     *
+     * @param floatingView FloatingView
+     */
+    void releaseEdgeSlot(FloatingView floatingView);
+}
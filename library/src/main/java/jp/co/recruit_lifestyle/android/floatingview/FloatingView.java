@@ -16,11 +16,16 @@
 
 package jp.co.recruit_lifestyle.android.floatingview;
 
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
 import android.animation.TimeInterpolator;
 import android.animation.ValueAnimator;
 import android.content.Context;
 import android.content.res.Configuration;
 import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
 import android.graphics.PixelFormat;
 import android.graphics.Rect;
 import android.os.Build;
@@ -46,12 +51,14 @@ import android.view.ViewConfiguration;
 import android.view.ViewGroup;
 import android.view.ViewTreeObserver;
 import android.view.WindowManager;
+import android.view.animation.DecelerateInterpolator;
 import android.view.animation.OvershootInterpolator;
 import android.widget.FrameLayout;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 
 /**
  * フローティングViewを表すクラスです。
@@ -75,11 +82,36 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
      */
     private static final long MOVE_TO_EDGE_DURATION = 450L;
 
+    /**
+     * Duration of the move to edge animation(QUALITY_TIER_MEDIUM)
+     */
+    private static final long MOVE_TO_EDGE_DURATION_MEDIUM = 300L;
+
+    /**
+     * Duration of the move to edge animation(QUALITY_TIER_LOW)
+     */
+    private static final long MOVE_TO_EDGE_DURATION_LOW = 200L;
+
     /**
      * 画面端移動アニメーションの係数
      */
     private static final float MOVE_TO_EDGE_OVERSHOOT_TENSION = 1.25f;
 
+    /**
+     * Radius of the cluster badge(dp)
+     */
+    private static final float CLUSTER_BADGE_RADIUS = 10;
+
+    /**
+     * Text size of the cluster badge(dp)
+     */
+    private static final float CLUSTER_BADGE_TEXT_SIZE = 11;
+
+    /**
+     * Color of the cluster badge
+     */
+    private static final int CLUSTER_BADGE_COLOR = 0xFF424242;
+
     /**
      * Damping ratio constant for spring animation (X coordinate)
      */
@@ -271,6 +303,16 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
      */
     private boolean mIsInitialAnimationRunning;
 
+    /**
+     * Width restored from the saved layout(0 if not restored)
+     */
+    private int mRestoredWidth;
+
+    /**
+     * Height restored from the saved layout(0 if not restored)
+     */
+    private int mRestoredHeight;
+
     /**
      * 初期表示時にアニメーションするフラグ
      */
@@ -333,6 +375,11 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
      */
     private final TimeInterpolator mMoveEdgeInterpolator;
 
+    /**
+     * Interpolator without overshoot(QUALITY_TIER_LOW_POWER)
+     */
+    private final TimeInterpolator mLowPowerMoveEdgeInterpolator;
+
     /**
      * 移動限界を表すRect
      */
@@ -403,6 +450,93 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
      */
     private final Rect mSafeInsetRect;
 
+    /**
+     * Animation quality tier
+     */
+    @FloatingViewManager.QualityTier
+    private int mQualityTier;
+
+    /**
+     * Surface format(SURFACE_FORMAT_XXX)
+     */
+    @FloatingViewManager.SurfaceFormat
+    private int mSurfaceFormat;
+
+    /**
+     * Draw the content snapshot while moving or not
+     */
+    private boolean mUseContentSnapshot;
+
+    /**
+     * The content is drawn through the hardware layers while moving
+     */
+    private boolean mIsContentSnapshotRendering;
+
+    /**
+     * Children whose layer type has been changed to LAYER_TYPE_HARDWARE while moving
+     */
+    private final ArrayList<View> mContentLayerViewList;
+
+    /**
+     * Number of running move animations(ValueAnimator and physics-based animations)
+     */
+    private int mRunningMoveAnimationCount;
+
+    /**
+     * Listener of the end of the move to edge animation(ValueAnimator)
+     */
+    private final Animator.AnimatorListener mMoveEdgeAnimatorListener;
+
+    /**
+     * Listener of the end of the physics-based animations
+     */
+    private final DynamicAnimation.OnAnimationEndListener mPhysicsAnimationEndListener;
+
+    /**
+     * Listener of the committed window layout
+     */
+    private WindowLayoutListener mWindowLayoutListener;
+
+    /**
+     * Resolver of the position along the edge(null if the edge packing is disabled)
+     */
+    private EdgeSlotResolver mEdgeSlotResolver;
+
+    /**
+     * True if the goal position Y has been moved to the edge slot(the physics animation can not move to it)
+     */
+    private boolean mIsEdgeSlotMoving;
+
+    /**
+     * Number of the FloatingViews clustered into this one(0 if not a group bubble)
+     */
+    private int mClusterCount;
+
+    /**
+     * Text of the cluster badge
+     */
+    private String mClusterBadgeText;
+
+    /**
+     * Paint of the cluster badge(created on demand)
+     */
+    private Paint mClusterBadgePaint;
+
+    /**
+     * Paint of the cluster badge text(created on demand)
+     */
+    private Paint mClusterBadgeTextPaint;
+
+    /**
+     * Listener of the relayout after the display has changed(null if the FloatingView moves by itself)
+     */
+    private RelayoutListener mRelayoutListener;
+
+    /**
+     * Position limit rect before the display has changed
+     */
+    private final Rect mOldPositionLimitRect;
+
     static {
         if (Build.VERSION.SDK_INT <= Build.VERSION_CODES.N_MR1) {
             OVERLAY_TYPE = WindowManager.LayoutParams.TYPE_PRIORITY_PHONE;
@@ -435,14 +569,31 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
         mAnimationHandler = new FloatingAnimationHandler(this);
         mLongPressHandler = new LongPressHandler(this);
         mMoveEdgeInterpolator = new OvershootInterpolator(MOVE_TO_EDGE_OVERSHOOT_TENSION);
+        mLowPowerMoveEdgeInterpolator = new DecelerateInterpolator();
         mMoveDirection = FloatingViewManager.MOVE_DIRECTION_DEFAULT;
         mUsePhysics = false;
+        mQualityTier = FloatingViewManager.QUALITY_TIER_HIGH;
+        mSurfaceFormat = FloatingViewManager.SURFACE_FORMAT_TRANSLUCENT;
+        mContentLayerViewList = new ArrayList<>();
+        mMoveEdgeAnimatorListener = new AnimatorListenerAdapter() {
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                onMoveAnimationEnd();
+            }
+        };
+        mPhysicsAnimationEndListener = new DynamicAnimation.OnAnimationEndListener() {
+            @Override
+            public void onAnimationEnd(DynamicAnimation animation, boolean canceled, float value, float velocity) {
+                onMoveAnimationEnd();
+            }
+        };
         final Resources resources = context.getResources();
         mIsTablet = (resources.getConfiguration().screenLayout & Configuration.SCREENLAYOUT_SIZE_MASK) >= Configuration.SCREENLAYOUT_SIZE_LARGE;
         mRotation = mWindowManager.getDefaultDisplay().getRotation();
 
         mMoveLimitRect = new Rect();
         mPositionLimitRect = new Rect();
+        mOldPositionLimitRect = new Rect();
         mSafeInsetRect = new Rect();
 
         // ステータスバーの高さを取得
@@ -550,6 +701,16 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
         mParams.x = mInitX;
         mParams.y = mInitY;
 
+        // restored from the saved layout: the window is already at the settled position
+        if (canSkipInitialMove()) {
+            mIsDraggable = true;
+            if (mWindowLayoutListener != null) {
+                mWindowLayoutListener.onWindowLayoutCommitted(this);
+            }
+            notifySettled();
+            return true;
+        }
+
         // 画面端に移動しない場合は指定座標に移動
         if (mMoveDirection == FloatingViewManager.MOVE_DIRECTION_NONE) {
             moveTo(mInitX, mInitY, mInitX, mInitY, false);
@@ -733,6 +894,7 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
         // 前の画面座標を保存
         final int oldPositionLimitWidth = mPositionLimitRect.width();
         final int oldPositionLimitHeight = mPositionLimitRect.height();
+        mOldPositionLimitRect.set(mPositionLimitRect);
 
         // 新しい座標情報に切替
         mWindowManager.getDefaultDisplay().getMetrics(mMetrics);
@@ -758,11 +920,14 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
             // If there is a screen change during the operation, move to the appropriate position
             if (mIsMoveAccept) {
                 moveToEdge(mParams.x, mParams.y, false);
+            } else if (mRelayoutListener != null && mRelayoutListener.onRelayoutRequested(this, mOldPositionLimitRect, mPositionLimitRect)) {
+                // the new position is solved with the other FloatingViews and applied later
+                cancelAnimation();
             } else {
                 final int newX = (int) (mParams.x * mPositionLimitRect.width() / (float) oldPositionLimitWidth + 0.5f);
                 final int goalPositionX = Math.min(Math.max(mPositionLimitRect.left, newX), mPositionLimitRect.right);
                 final int newY = (int) (mParams.y * mPositionLimitRect.height() / (float) oldPositionLimitHeight + 0.5f);
-                final int goalPositionY = Math.min(Math.max(mPositionLimitRect.top, newY), mPositionLimitRect.bottom);
+                final int goalPositionY = getEdgeSlotPositionY(goalPositionX, Math.min(Math.max(mPositionLimitRect.top, newY), mPositionLimitRect.bottom));
                 moveTo(mParams.x, mParams.y, goalPositionX, goalPositionY, false);
             }
         }
@@ -777,9 +942,114 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
         if (mMoveEdgeAnimator != null) {
             mMoveEdgeAnimator.removeAllUpdateListeners();
         }
+        stopContentSnapshot();
         super.onDetachedFromWindow();
     }
 
+    /**
+     * Draw the cluster badge over the children.
+     */
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        super.dispatchDraw(canvas);
+        if (mClusterCount > 0) {
+            drawClusterBadge(canvas);
+        }
+    }
+
+    /**
+     * Draw the number of the clustered FloatingViews at the top right.
+     *
+     * @param canvas Canvas
+     */
+    private void drawClusterBadge(Canvas canvas) {
+        if (mClusterBadgePaint == null) {
+            mClusterBadgePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            mClusterBadgePaint.setColor(CLUSTER_BADGE_COLOR);
+            mClusterBadgeTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            mClusterBadgeTextPaint.setColor(Color.WHITE);
+            mClusterBadgeTextPaint.setTextAlign(Paint.Align.CENTER);
+            mClusterBadgeTextPaint.setTextSize(CLUSTER_BADGE_TEXT_SIZE * mMetrics.density);
+        }
+        final float radius = CLUSTER_BADGE_RADIUS * mMetrics.density;
+        final float centerX = getWidth() - radius;
+        final float centerY = radius;
+        canvas.drawCircle(centerX, centerY, radius, mClusterBadgePaint);
+        final float baseline = centerY - (mClusterBadgeTextPaint.descent() + mClusterBadgeTextPaint.ascent()) / 2;
+        canvas.drawText(mClusterBadgeText, centerX, baseline, mClusterBadgeTextPaint);
+    }
+
+    /**
+     * Set the number of the FloatingViews clustered into this one.
+     *
+     * @param clusterCount number of the clustered FloatingViews(0 hides the badge)
+     */
+    void setClusterCount(int clusterCount) {
+        if (mClusterCount == clusterCount) {
+            return;
+        }
+        mClusterCount = clusterCount;
+        mClusterBadgeText = clusterCount > 0 ? "+" + clusterCount : null;
+        invalidate();
+    }
+
+    /**
+     * Notify that the FloatingView has settled.
+     */
+    private void notifySettled() {
+        if (mWindowLayoutListener != null) {
+            mWindowLayoutListener.onWindowLayoutSettled(this);
+        }
+    }
+
+    /**
+     * Start drawing the content through the hardware layers(while dragging or moving to the edge).<br/>
+     * The layers are textures rendered by the GPU, so the content is neither rasterized by software nor copied to a Bitmap.
+     * The live content is drawn if the window is not hardware accelerated(a layer would be a software bitmap there).
+     */
+    private void startContentSnapshot() {
+        if (!mUseContentSnapshot || mIsContentSnapshotRendering || !isHardwareAccelerated()) {
+            return;
+        }
+        mIsContentSnapshotRendering = true;
+        final int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            final View child = getChildAt(i);
+            // the layer type set by the content is kept
+            if (child.getLayerType() == View.LAYER_TYPE_NONE) {
+                child.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+                mContentLayerViewList.add(child);
+            }
+        }
+    }
+
+    /**
+     * Stop drawing the content through the hardware layers and release them(settled).
+     */
+    private void stopContentSnapshot() {
+        if (!mIsContentSnapshotRendering) {
+            return;
+        }
+        mIsContentSnapshotRendering = false;
+        final int size = mContentLayerViewList.size();
+        for (int i = 0; i < size; i++) {
+            mContentLayerViewList.get(i).setLayerType(View.LAYER_TYPE_NONE, null);
+        }
+        mContentLayerViewList.clear();
+    }
+
+    /**
+     * Called when a move animation has finished.
+     * When all the animations have finished and the touch has finished, the FloatingView is settled.
+     */
+    private void onMoveAnimationEnd() {
+        mRunningMoveAnimationCount = Math.max(mRunningMoveAnimationCount - 1, 0);
+        if (mRunningMoveAnimationCount == 0 && mVelocityTracker == null) {
+            stopContentSnapshot();
+            notifySettled();
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -869,6 +1139,7 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
                 return !isOnInterceptTouchEvent;
             }
             mIsMoveAccept = true;
+            startContentSnapshot();
             mAnimationHandler.updateTouchPosition(getXByTouch(), getYByTouch());
             // compute offset and restore
             addMovement(event);
@@ -923,6 +1194,11 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
             }
         }
 
+        // Settled without the move animation(tap, drop to the trash)
+        if ((action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) && mRunningMoveAnimationCount == 0) {
+            stopContentSnapshot();
+        }
+
         return !isOnInterceptTouchEvent || mIsMoveAccept;
     }
 
@@ -999,8 +1275,30 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
     private void moveToEdge(int startX, int startY, boolean withAnimation) {
         // 指定座標に移動
         final int goalPositionX = getGoalPositionX(startX, startY);
-        final int goalPositionY = getGoalPositionY(startX, startY);
+        final int goalPositionY = getEdgeSlotPositionY(goalPositionX, getGoalPositionY(startX, startY));
+        mIsEdgeSlotMoving = goalPositionY != startY;
         moveTo(startX, startY, goalPositionX, goalPositionY, withAnimation);
+        mIsEdgeSlotMoving = false;
+    }
+
+    /**
+     * Get the free position along the edge(edge packing).
+     *
+     * @param goalPositionX goal position X coordinate
+     * @param goalPositionY goal position Y coordinate
+     * @return goal position Y coordinate
+     */
+    private int getEdgeSlotPositionY(int goalPositionX, int goalPositionY) {
+        if (mEdgeSlotResolver == null) {
+            return goalPositionY;
+        }
+        final boolean isLeftEdge = goalPositionX <= mPositionLimitRect.left;
+        final boolean isRightEdge = goalPositionX >= mPositionLimitRect.right;
+        if (!isLeftEdge && !isRightEdge) {
+            mEdgeSlotResolver.releaseEdgeSlot(this);
+            return goalPositionY;
+        }
+        return mEdgeSlotResolver.resolveEdgeSlot(this, isRightEdge, goalPositionY, mPositionLimitRect.top, mPositionLimitRect.bottom);
     }
 
     /**
@@ -1019,8 +1317,11 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
         goalPositionY = Math.min(Math.max(mPositionLimitRect.top, goalPositionY), mPositionLimitRect.bottom);
         // アニメーションを行う場合
         if (withAnimation) {
+            startContentSnapshot();
             // Use physics animation
-            final boolean usePhysicsAnimation = mUsePhysics && mVelocityTracker != null && mMoveDirection != FloatingViewManager.MOVE_DIRECTION_NEAREST;
+            // Physics-based animation is only used on QUALITY_TIER_HIGH
+            final boolean usePhysicsAnimation = mUsePhysics && mQualityTier == FloatingViewManager.QUALITY_TIER_HIGH
+                    && mVelocityTracker != null && mMoveDirection != FloatingViewManager.MOVE_DIRECTION_NEAREST && !mIsEdgeSlotMoving;
             if (usePhysicsAnimation) {
                 startPhysicsAnimation(goalPositionX, currentY);
             } else {
@@ -1033,6 +1334,9 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
                 mParams.y = goalPositionY;
                 updateViewLayout();
             }
+            if (mVelocityTracker == null && mRunningMoveAnimationCount == 0) {
+                notifySettled();
+            }
         }
         // タッチ座標を初期化
         mLocalTouchX = 0;
@@ -1103,11 +1407,28 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
             });
         }
         // X軸のアニメーション設定
-        mMoveEdgeAnimator.setDuration(MOVE_TO_EDGE_DURATION);
-        mMoveEdgeAnimator.setInterpolator(mMoveEdgeInterpolator);
+        mMoveEdgeAnimator.setDuration(getMoveToEdgeDuration());
+        mMoveEdgeAnimator.setInterpolator(mQualityTier == FloatingViewManager.QUALITY_TIER_LOW_POWER ? mLowPowerMoveEdgeInterpolator : mMoveEdgeInterpolator);
+        mMoveEdgeAnimator.addListener(mMoveEdgeAnimatorListener);
+        mRunningMoveAnimationCount++;
         mMoveEdgeAnimator.start();
     }
 
+    /**
+     * Get the duration of the move to edge animation according to the quality tier.
+     *
+     * @return duration(ms)
+     */
+    private long getMoveToEdgeDuration() {
+        if (mQualityTier == FloatingViewManager.QUALITY_TIER_MEDIUM) {
+            return MOVE_TO_EDGE_DURATION_MEDIUM;
+        }
+        if (mQualityTier >= FloatingViewManager.QUALITY_TIER_LOW) {
+            return MOVE_TO_EDGE_DURATION_LOW;
+        }
+        return MOVE_TO_EDGE_DURATION;
+    }
+
     /**
      * Start spring animation(X coordinate)
      *
@@ -1137,6 +1458,8 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
                 updateViewLayout();
             }
         });
+        springAnimationX.addEndListener(mPhysicsAnimationEndListener);
+        mRunningMoveAnimationCount++;
         springAnimationX.start();
     }
 
@@ -1171,6 +1494,8 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
                 updateViewLayout();
             }
         });
+        springAnimationY.addEndListener(mPhysicsAnimationEndListener);
+        mRunningMoveAnimationCount++;
         springAnimationY.start();
     }
 
@@ -1200,6 +1525,8 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
                 updateViewLayout();
             }
         });
+        flingAnimationX.addEndListener(mPhysicsAnimationEndListener);
+        mRunningMoveAnimationCount++;
         flingAnimationX.start();
     }
 
@@ -1229,6 +1556,8 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
                 updateViewLayout();
             }
         });
+        flingAnimationY.addEndListener(mPhysicsAnimationEndListener);
+        mRunningMoveAnimationCount++;
         flingAnimationY.start();
     }
 
@@ -1240,6 +1569,18 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
             return;
         }
         mWindowManager.updateViewLayout(this, mParams);
+        if (mWindowLayoutListener != null) {
+            mWindowLayoutListener.onWindowLayoutCommitted(this);
+        }
+    }
+
+    /**
+     * Set the listener of the committed window layout.
+     *
+     * @param listener {@link WindowLayoutListener}
+     */
+    void setWindowLayoutListener(WindowLayoutListener listener) {
+        mWindowLayoutListener = listener;
     }
 
     /**
@@ -1339,6 +1680,10 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
      * @param newScale 設定する拡大率
      */
     private void setScale(float newScale) {
+        // INFO:the opaque surface is not scaled, because the uncovered area would not be transparent
+        if (mSurfaceFormat != FloatingViewManager.SURFACE_FORMAT_TRANSLUCENT) {
+            return;
+        }
         // INFO:childにscaleを設定しないと拡大率が変わらない現象に対処するための修正
         if (Build.VERSION.SDK_INT <= Build.VERSION_CODES.KITKAT) {
             final int childCount = getChildCount();
@@ -1408,6 +1753,56 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
         mUsePhysics = usePhysics && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN;
     }
 
+    /**
+     * Set the animation quality tier.
+     *
+     * @param qualityTier QUALITY_TIER_XXX
+     */
+    void setQualityTier(@FloatingViewManager.QualityTier int qualityTier) {
+        mQualityTier = qualityTier;
+        mAnimationHandler.setQualityTier(qualityTier);
+    }
+
+    /**
+     * Called before the released window is attached again.<br/>
+     * The screen may have been rotated while the window was released, so the position is adjusted to the current screen.
+     */
+    void onRestoreWindow() {
+        if (mPositionLimitRect.isEmpty()) {
+            return;
+        }
+        refreshLimitRect();
+    }
+
+    /**
+     * Set the surface format of the window.
+     *
+     * @param surfaceFormat SURFACE_FORMAT_XXX
+     */
+    void setSurfaceFormat(@FloatingViewManager.SurfaceFormat int surfaceFormat) {
+        mSurfaceFormat = surfaceFormat;
+        if (surfaceFormat == FloatingViewManager.SURFACE_FORMAT_OPAQUE) {
+            mParams.format = PixelFormat.OPAQUE;
+        } else if (surfaceFormat == FloatingViewManager.SURFACE_FORMAT_RGB_565) {
+            mParams.format = PixelFormat.RGB_565;
+        } else {
+            mParams.format = PixelFormat.TRANSLUCENT;
+        }
+        updateViewLayout();
+    }
+
+    /**
+     * Draw the content through the hardware layers while moving or not.
+     *
+     * @param useContentSnapshot true if the content is cached in the hardware layers while moving
+     */
+    void setUseContentSnapshot(boolean useContentSnapshot) {
+        mUseContentSnapshot = useContentSnapshot;
+        if (!useContentSnapshot) {
+            stopContentSnapshot();
+        }
+    }
+
     /**
      * 初期座標を設定します。
      *
@@ -1439,6 +1834,104 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
         outRect.set(currentX, currentY, currentX + getWidth(), currentY + getHeight());
     }
 
+    /**
+     * Restore the saved layout(call before the window is added).<br/>
+     * The window is added at the saved position, and the initial move is skipped if the size and the position are still valid on the first draw.
+     *
+     * @param x      saved X coordinate
+     * @param y      saved Y coordinate
+     * @param width  saved width(0 or less if unknown)
+     * @param height saved height(0 or less if unknown)
+     */
+    void setRestoredLayout(int x, int y, int width, int height) {
+        mInitX = x;
+        mInitY = y;
+        mParams.x = x;
+        mParams.y = y;
+        mRestoredWidth = width;
+        mRestoredHeight = height;
+    }
+
+    /**
+     * Check whether the restored layout can be used as it is.
+     *
+     * @return true if the size is the same and the position is in the position limit rect
+     */
+    private boolean canSkipInitialMove() {
+        // the edge slots are allocated by the initial move
+        if (mRestoredWidth <= 0 || mRestoredHeight <= 0 || mEdgeSlotResolver != null) {
+            return false;
+        }
+        return mRestoredWidth == getMeasuredWidth() && mRestoredHeight == getMeasuredHeight()
+                && mPositionLimitRect.left <= mParams.x && mParams.x <= mPositionLimitRect.right
+                && mPositionLimitRect.top <= mParams.y && mParams.y <= mPositionLimitRect.bottom;
+    }
+
+    /**
+     * Move the window to the position(used by the chain mode).
+     *
+     * @param x X coordinate
+     * @param y Y coordinate
+     */
+    void setWindowPosition(int x, int y) {
+        if (mParams.x == x && mParams.y == y) {
+            return;
+        }
+        mParams.x = x;
+        mParams.y = y;
+        updateViewLayout();
+    }
+
+    /**
+     * Set the listener of the relayout after the display has changed.
+     *
+     * @param listener {@link RelayoutListener}(null if the FloatingView moves by itself)
+     */
+    void setRelayoutListener(RelayoutListener listener) {
+        mRelayoutListener = listener;
+    }
+
+    /**
+     * Move to the position solved after the display has changed.
+     *
+     * @param goalPositionX goal position X coordinate
+     * @param goalPositionY goal position Y coordinate
+     */
+    void applyRelayout(int goalPositionX, int goalPositionY) {
+        // the touch has priority
+        if (mIsMoveAccept) {
+            return;
+        }
+        moveTo(mParams.x, mParams.y, goalPositionX, getEdgeSlotPositionY(goalPositionX, goalPositionY), false);
+    }
+
+    /**
+     * Get the position limit rect.
+     *
+     * @param outRect Rect to receive the position limit rect
+     */
+    void getPositionLimitRect(Rect outRect) {
+        outRect.set(mPositionLimitRect);
+    }
+
+    /**
+     * Set the resolver of the position along the edge.
+     *
+     * @param resolver {@link EdgeSlotResolver}(null disables the edge packing)
+     */
+    void setEdgeSlotResolver(EdgeSlotResolver resolver) {
+        mEdgeSlotResolver = resolver;
+    }
+
+    /**
+     * Get the bounds of the window from the layout params(same coordinates as the drawing rect).
+     *
+     * @param outRect Rect to receive the bounds
+     */
+    void getWindowLayoutRect(Rect outRect) {
+        outRect.set(mParams.x, mParams.y, mParams.x + getWidth(), mParams.y + getHeight());
+    }
+
     /**
      * WindowManager.LayoutParamsを取得します。
      */
@@ -1515,11 +2008,21 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
          */
         private static final long ANIMATION_REFRESH_TIME_MILLIS = 10L;
 
+        /**
+         * Refresh time of the animation(QUALITY_TIER_LOW_POWER)
+         */
+        private static final long ANIMATION_REFRESH_TIME_MILLIS_LOW_POWER = 32L;
+
         /**
          * FloatingViewの吸着の着脱時間
          */
         private static final long CAPTURE_DURATION_MILLIS = 300L;
 
+        /**
+         * Capture duration(QUALITY_TIER_LOW)
+         */
+        private static final long CAPTURE_DURATION_MILLIS_LOW = 150L;
+
         /**
          * アニメーションなしの状態を表す定数
          */
@@ -1589,6 +2092,16 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
          */
         private float mTargetPositionY;
 
+        /**
+         * Capture duration(tracking smoothing)
+         */
+        private long mCaptureDurationMillis;
+
+        /**
+         * Refresh time of the animation
+         */
+        private long mRefreshTimeMillis;
+
         /**
          * FloatingView
          */
@@ -1601,6 +2114,8 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
             mFloatingView = new WeakReference<>(floatingView);
             mStartedCode = ANIMATION_NONE;
             mState = STATE_NORMAL;
+            mCaptureDurationMillis = CAPTURE_DURATION_MILLIS;
+            mRefreshTimeMillis = ANIMATION_REFRESH_TIME_MILLIS;
         }
 
         /**
@@ -1629,7 +2144,7 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
             }
             // 経過時間
             final float elapsedTime = SystemClock.uptimeMillis() - mStartTime;
-            final float trackingTargetTimeRate = Math.min(elapsedTime / CAPTURE_DURATION_MILLIS, 1.0f);
+            final float trackingTargetTimeRate = Math.min(elapsedTime / mCaptureDurationMillis, 1.0f);
 
             // 重なっていない場合のアニメーション
             if (mState == FloatingView.STATE_NORMAL) {
@@ -1642,7 +2157,7 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
                 params.x = (int) (mStartX + (targetPositionX - mStartX) * basePosition);
                 params.y = (int) (mStartY + (targetPositionY - mStartY) * basePosition);
                 floatingView.updateViewLayout();
-                sendMessageAtTime(newMessage(animationCode, TYPE_UPDATE), SystemClock.uptimeMillis() + ANIMATION_REFRESH_TIME_MILLIS);
+                sendMessageAtTime(newMessage(animationCode, TYPE_UPDATE), SystemClock.uptimeMillis() + mRefreshTimeMillis);
             }
             // 重なった場合のアニメーション
             else if (mState == FloatingView.STATE_INTERSECTING) {
@@ -1654,7 +2169,7 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
                 params.x = (int) (mStartX + (targetPositionX - mStartX) * basePosition);
                 params.y = (int) (mStartY + (targetPositionY - mStartY) * basePosition);
                 floatingView.updateViewLayout();
-                sendMessageAtTime(newMessage(animationCode, TYPE_UPDATE), SystemClock.uptimeMillis() + ANIMATION_REFRESH_TIME_MILLIS);
+                sendMessageAtTime(newMessage(animationCode, TYPE_UPDATE), SystemClock.uptimeMillis() + mRefreshTimeMillis);
             }
 
         }
@@ -1733,6 +2248,16 @@ class FloatingView extends FrameLayout implements ViewTreeObserver.OnPreDrawList
             mTargetPositionY = centerY;
         }
 
+        /**
+         * Set the quality tier(reduce the tracking smoothing on QUALITY_TIER_LOW, fewer frames on QUALITY_TIER_LOW_POWER).
+         *
+         * @param qualityTier QUALITY_TIER_XXX
+         */
+        void setQualityTier(int qualityTier) {
+            mCaptureDurationMillis = qualityTier >= FloatingViewManager.QUALITY_TIER_LOW ? CAPTURE_DURATION_MILLIS_LOW : CAPTURE_DURATION_MILLIS;
+            mRefreshTimeMillis = qualityTier == FloatingViewManager.QUALITY_TIER_LOW_POWER ? ANIMATION_REFRESH_TIME_MILLIS_LOW_POWER : ANIMATION_REFRESH_TIME_MILLIS;
+        }
+
         /**
          * アニメーション状態を設定します。
          *
@@ -0,0 +1,83 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Owner of the bubbles identified by String IDs.<br/>
+ * {@link RemoteFloatingViewHost} draws the bubbles in {@link FloatingViewHostService}(which can run in its own process),
+ * and {@link LocalFloatingViewHost} draws them in this process with the same interface.<br/>
+ * The methods must be called on the main thread.
+ */
+public interface FloatingViewHost {
+
+    /**
+     * Add the bubble(avatar and badge count).<br/>
+     * The bubble with the same ID is replaced.
+     *
+     * @param id         ID of the bubble
+     * @param avatar     avatar bitmap(keep it about the displayed size)
+     * @param badgeCount badge count(the badge is hidden if 0 or less)
+     * @param options    Options
+     */
+    void addBubble(@NonNull String id, @Nullable Bitmap avatar, int badgeCount, @NonNull FloatingViewManager.Options options);
+
+    /**
+     * Set the avatar of the bubble.
+     *
+     * @param id     ID of the bubble
+     * @param avatar avatar bitmap
+     */
+    void setAvatar(@NonNull String id, @Nullable Bitmap avatar);
+
+    /**
+     * Set the badge count of the bubble.
+     *
+     * @param id         ID of the bubble
+     * @param badgeCount badge count(the badge is hidden if 0 or less)
+     */
+    void setBadgeCount(@NonNull String id, int badgeCount);
+
+    /**
+     * Remove the bubble.
+     *
+     * @param id ID of the bubble
+     */
+    void removeBubble(@NonNull String id);
+
+    /**
+     * Remove all the bubbles.
+     */
+    void removeAllBubbles();
+
+    /**
+     * Set the listener of the bubbles.
+     *
+     * @param listener {@link FloatingViewHostListener}(null to remove)
+     */
+    void setFloatingViewHostListener(@Nullable FloatingViewHostListener listener);
+
+    /**
+     * Remove all the bubbles and release the host.<br/>
+     * The host can not be used after this call.
+     */
+    void release();
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+/**
+ * Listener of the {@link FloatingViewHost}.<br/>
+ * Called on the main thread.
+ */
+public interface FloatingViewHostListener {
+
+    /**
+     * Callback when the bubble has been released by the user.
+     *
+     * @param id ID of the bubble
+     * @param x  x coordinate(origin at the bottom left of the screen)
+     * @param y  y coordinate(origin at the bottom left of the screen)
+     */
+    void onBubbleMoved(String id, int x, int y);
+
+    /**
+     * Callback when the bubble has been deleted by the user(dropped on the trash).
+     *
+     * @param id ID of the bubble
+     */
+    void onBubbleRemoved(String id);
+
+    /**
+     * Callback when all the bubbles have been deleted by the user.
+     */
+    void onFinishFloatingView();
+}
@@ -0,0 +1,212 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.app.Service;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.RemoteException;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+
+/**
+ * Service drawing the bubbles of {@link RemoteFloatingViewHost}.<br/>
+ * Declare it with its own process so that the heap and the GC of the app do not affect the bubbles:
+ * <pre>
+ * &lt;service
+ *     android:name="jp.co.recruit_lifestyle.android.floatingview.FloatingViewHostService"
+ *     android:exported="false"
+ *     android:process=":floatingview" /&gt;
+ * </pre>
+ * Override {@link #onHostCreated(FloatingViewManager)} to set the trash icons or the other settings.
+ */
+public class FloatingViewHostService extends Service implements FloatingViewHostListener {
+
+    /**
+     * FloatingViewHost drawing the bubbles
+     */
+    private LocalFloatingViewHost mFloatingViewHost;
+
+    /**
+     * Messenger receiving the commands
+     */
+    private Messenger mMessenger;
+
+    /**
+     * Messengers of the clients
+     */
+    private final ArrayList<Messenger> mClientList = new ArrayList<>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        mFloatingViewHost = new LocalFloatingViewHost(this);
+        mFloatingViewHost.setFloatingViewHostListener(this);
+        mMessenger = new Messenger(new CommandHandler(this));
+        onHostCreated(mFloatingViewHost.getFloatingViewManager());
+    }
+
+    /**
+     * Called when the FloatingViewManager has been created.<br/>
+     * Set the trash icons, the display mode, etc. here.
+     *
+     * @param floatingViewManager FloatingViewManager drawing the bubbles
+     */
+    protected void onHostCreated(FloatingViewManager floatingViewManager) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IBinder onBind(Intent intent) {
+        return mMessenger.getBinder();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onDestroy() {
+        mClientList.clear();
+        mFloatingViewHost.release();
+        super.onDestroy();
+    }
+
+    /**
+     * Apply the command from the client.
+     *
+     * @param msg Message
+     */
+    private void onCommand(Message msg) {
+        final String id = HostProtocol.getId(msg);
+        switch (msg.what) {
+            case HostProtocol.MSG_REGISTER_CLIENT:
+                if (msg.replyTo != null && !mClientList.contains(msg.replyTo)) {
+                    mClientList.add(msg.replyTo);
+                }
+                break;
+            case HostProtocol.MSG_ADD_BUBBLE:
+                if (id != null) {
+                    mFloatingViewHost.addBubble(id, HostProtocol.getAvatar(msg), msg.arg1, HostProtocol.getOptions(msg));
+                }
+                break;
+            case HostProtocol.MSG_SET_AVATAR:
+                if (id != null) {
+                    mFloatingViewHost.setAvatar(id, HostProtocol.getAvatar(msg));
+                }
+                break;
+            case HostProtocol.MSG_SET_BADGE_COUNT:
+                if (id != null) {
+                    mFloatingViewHost.setBadgeCount(id, msg.arg1);
+                }
+                break;
+            case HostProtocol.MSG_REMOVE_BUBBLE:
+                if (id != null) {
+                    mFloatingViewHost.removeBubble(id);
+                }
+                break;
+            case HostProtocol.MSG_REMOVE_ALL_BUBBLES:
+                mFloatingViewHost.removeAllBubbles();
+                break;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onBubbleMoved(String id, int x, int y) {
+        sendToClients(HostProtocol.MSG_BUBBLE_MOVED, id, x, y);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onBubbleRemoved(String id) {
+        sendToClients(HostProtocol.MSG_BUBBLE_REMOVED, id, 0, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onFinishFloatingView() {
+        sendToClients(HostProtocol.MSG_FINISH_FLOATING_VIEW, null, 0, 0);
+    }
+
+    /**
+     * Send the event to the clients.<br/>
+     * The clients whose process has died are removed.
+     *
+     * @param what MSG_XXX
+     * @param id   ID of the bubble
+     * @param arg1 arg1
+     * @param arg2 arg2
+     */
+    private void sendToClients(int what, String id, int arg1, int arg2) {
+        for (int i = mClientList.size() - 1; i >= 0; i--) {
+            try {
+                mClientList.get(i).send(HostProtocol.obtain(what, id, arg1, arg2));
+            } catch (RemoteException e) {
+                mClientList.remove(i);
+            }
+        }
+    }
+
+    /**
+     * Handler receiving the commands on the main thread.
+     */
+    static class CommandHandler extends Handler {
+
+        /**
+         * FloatingViewHostService
+         */
+        private final WeakReference<FloatingViewHostService> mService;
+
+        /**
+         * Constructor
+         *
+         * @param service FloatingViewHostService
+         */
+        CommandHandler(FloatingViewHostService service) {
+            super(Looper.getMainLooper());
+            mService = new WeakReference<>(service);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void handleMessage(Message msg) {
+            final FloatingViewHostService service = mService.get();
+            if (service == null) {
+                return;
+            }
+            service.onCommand(msg);
+        }
+    }
+}
@@ -17,15 +17,22 @@
 package jp.co.recruit_lifestyle.android.floatingview;
 
 import android.app.Activity;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.res.Configuration;
 import android.content.res.Resources;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Process;
 import androidx.annotation.DrawableRes;
 import androidx.annotation.IntDef;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.core.view.ViewCompat;
 import android.util.DisplayMetrics;
 import android.view.DisplayCutout;
@@ -38,14 +45,22 @@ import android.widget.FrameLayout;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 /**
  * FloatingViewを扱うクラスです。
  * TODO:動作がカクカクなので原因を探す
  * TODO:移動を追従する複数表示サポートは第2弾で対応
  */
-public class FloatingViewManager implements ScreenChangedListener, View.OnTouchListener, TrashViewListener {
+public class FloatingViewManager implements ScreenChangedListener, View.OnTouchListener, TrashViewListener, QualityTierListener,
+        PowerPolicyObserver.OnPowerPolicyChangedListener, WindowLayoutListener, EdgeSlotResolver, RelayoutListener {
 
     /**
      * 常に表示するモード
@@ -107,6 +122,115 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
     public @interface MoveDirection {
     }
 
+    /**
+     * Full quality animations
+     */
+    public static final int QUALITY_TIER_HIGH = 0;
+
+    /**
+     * Object animation instead of physics-based animation, shorter move to edge animation
+     */
+    public static final int QUALITY_TIER_MEDIUM = 1;
+
+    /**
+     * In addition to QUALITY_TIER_MEDIUM, no trash background fade and less tracking smoothing
+     */
+    public static final int QUALITY_TIER_LOW = 2;
+
+    /**
+     * Low power profile(power save mode or thermal throttling): fewer animated frames, no overshoot and instant trash reveal
+     */
+    public static final int QUALITY_TIER_LOW_POWER = 3;
+
+    /**
+     * Animation quality tier
+     */
+    @IntDef({QUALITY_TIER_HIGH, QUALITY_TIER_MEDIUM, QUALITY_TIER_LOW, QUALITY_TIER_LOW_POWER})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface QualityTier {
+    }
+
+    /**
+     * Translucent surface(RGBA with alpha blending)
+     */
+    public static final int SURFACE_FORMAT_TRANSLUCENT = 0;
+
+    /**
+     * Opaque surface(no alpha blending). The content must fill the whole FloatingView.
+     */
+    public static final int SURFACE_FORMAT_OPAQUE = 1;
+
+    /**
+     * Opaque 16bit surface(RGB_565). The content must fill the whole FloatingView.
+     */
+    public static final int SURFACE_FORMAT_RGB_565 = 2;
+
+    /**
+     * Surface format of the FloatingView
+     */
+    @IntDef({SURFACE_FORMAT_TRANSLUCENT, SURFACE_FORMAT_OPAQUE, SURFACE_FORMAT_RGB_565})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface SurfaceFormat {
+    }
+
+    /**
+     * The listeners are called inside the touch events(default)
+     */
+    public static final int LISTENER_DISPATCH_INLINE = 0;
+
+    /**
+     * The listeners are called on the next frame of the UI thread
+     */
+    public static final int LISTENER_DISPATCH_NEXT_FRAME = 1;
+
+    /**
+     * The listeners are called on the executor(see {@link #setListenerExecutor(Executor)})
+     */
+    public static final int LISTENER_DISPATCH_EXECUTOR = 2;
+
+    /**
+     * Dispatch mode of the listeners
+     */
+    @IntDef({LISTENER_DISPATCH_INLINE, LISTENER_DISPATCH_NEXT_FRAME, LISTENER_DISPATCH_EXECUTOR})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface ListenerDispatchMode {
+    }
+
+    /**
+     * The windows of the hidden FloatingViews are never released
+     */
+    public static final long HIDDEN_WINDOW_RELEASE_NEVER = -1L;
+
+    /**
+     * The FloatingViews are not clustered by the number of the windows
+     */
+    public static final int CLUSTER_THRESHOLD_NONE = 0;
+
+    /**
+     * Cell size of the drop target index(dp)
+     */
+    private static final int DROP_TARGET_CELL_SIZE = 96;
+
+    /**
+     * Offset between the bubbles of the chain(dp)
+     */
+    private static final int CHAIN_SPACING = 6;
+
+    /**
+     * Distance within which the settled FloatingView is clustered(dp)
+     */
+    private static final int CLUSTER_DISTANCE = 8;
+
+    /**
+     * Space between the FloatingViews of the expanded cluster(dp)
+     */
+    private static final int CLUSTER_EXPAND_SPACING = 16;
+
+    /**
+     * Time to wait for the relayout solved on the background thread(ms)
+     */
+    private static final long RELAYOUT_TIMEOUT_MILLIS = 16;
+
     /**
      * Viewの形が円形の場合
      */
@@ -157,6 +281,11 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
      */
     private final FloatingViewListener mFloatingViewListener;
 
+    /**
+     * Listener of the lightweight contents(called at the time of the event)
+     */
+    private BubbleContentListener mBubbleContentListener;
+
     /**
      * FloatingViewの当たり判定用矩形
      */
@@ -191,12 +320,321 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
     private final ArrayList<FloatingView> mFloatingViewList;
 
     /**
-     * コンストラクタ
+     * Spatial index of the FloatingViews(updated when the window layout is committed)
+     */
+    private final BubbleIndex mBubbleIndex;
+
+    /**
+     * FloatingView overlapped by the dragged FloatingView
+     */
+    private FloatingView mOverlappedFloatingView;
+
+    /**
+     * BubbleOverlapListener
+     */
+    private BubbleOverlapListener mBubbleOverlapListener;
+
+    /**
+     * FloatingViews found by the proximity query(reused)
+     */
+    private final ArrayList<FloatingView> mNearbyFloatingViewList;
+
+    /**
+     * Allocator of the positions along the edges
+     */
+    private final EdgeSlotAllocator<FloatingView> mEdgeSlotAllocator;
+
+    /**
+     * Enable flag of the edge packing
+     */
+    private boolean mIsEdgePackingEnabled;
+
+    /**
+     * Follow-the-leader chain of the FloatingViews
+     */
+    private final BubbleChain mBubbleChain;
+
+    /**
+     * Ticker to move the chain once per frame(null before API 16)
+     */
+    private final FrameTicker mChainTicker;
+
+    /**
+     * Enable flag of the chain mode
+     */
+    private boolean mIsChainModeEnabled;
+
+    /**
+     * Group bubbles
+     */
+    private final BubbleClusters mBubbleClusters;
+
+    /**
+     * Enable flag of the clustering
+     */
+    private boolean mIsClusterEnabled;
+
+    /**
+     * Maximum number of the windows before the settled FloatingView is clustered
+     */
+    private int mClusterThreshold;
+
+    /**
+     * Distance within which the settled FloatingView is clustered(px)
+     */
+    private final int mClusterDistance;
+
+    /**
+     * Space between the FloatingViews of the expanded cluster(px)
+     */
+    private final int mClusterExpandSpacing;
+
+    /**
+     * FloatingViews settled since the last update of the clusters
+     */
+    private final ArrayList<FloatingView> mSettledFloatingViewList;
+
+    /**
+     * True while the cluster is expanding(the settles are ignored)
+     */
+    private boolean mIsClusterExpanding;
+
+    /**
+     * Handler to update the clusters outside of the layout pass
+     */
+    private final ClusterHandler mClusterHandler;
+
+    /**
+     * Bounds of the settled FloatingView(reused for the clustering)
+     */
+    private final Rect mClusterRect;
+
+    /**
+     * Bounds of the cluster candidate(reused for the clustering)
+     */
+    private final Rect mClusterCandidateRect;
+
+    /**
+     * Window position X on the touch down(to detect the tap)
+     */
+    private int mTouchDownWindowX;
+
+    /**
+     * Window position Y on the touch down(to detect the tap)
+     */
+    private int mTouchDownWindowY;
+
+    /**
+     * Enable flag of the relayout on the background thread
+     */
+    private boolean mIsAsyncRelayoutEnabled;
+
+    /**
+     * FloatingViews waiting for the relayout
+     */
+    private final ArrayList<FloatingView> mRelayoutFloatingViewList;
+
+    /**
+     * Position limit rects before the display has changed(the first one of the requests)
+     */
+    private final HashMap<FloatingView, Rect> mRelayoutOldLimitMap;
+
+    /**
+     * Relayout being solved(null if none)
+     */
+    private RelayoutTask mRelayoutTask;
+
+    /**
+     * Store of the last layouts(null until a FloatingView with the bubble ID is added)
+     */
+    private PositionStore mPositionStore;
+
+    /**
+     * Bubble IDs of the FloatingViews({@link Options#bubbleId})
+     */
+    private final HashMap<FloatingView, String> mBubbleIdMap;
+
+    /**
+     * Calls of addViewToWindow waiting for the saved layouts to be loaded
+     */
+    private final ArrayList<Runnable> mPendingAddList;
+
+    /**
+     * Task to run the pending calls of addViewToWindow after the load
+     */
+    private final Runnable mPendingAddTask;
+
+    /**
+     * Generation of the relayout(the results of the older generations are discarded)
+     */
+    private int mRelayoutGeneration;
+
+    /**
+     * Handler of the relayout
+     */
+    private final RelayoutHandler mRelayoutHandler;
+
+    /**
+     * Governor that switches the quality tier according to the frame overruns(null before API 16)
+     */
+    private final FrameQualityGovernor mQualityGovernor;
+
+    /**
+     * Enable flag of the quality governor
+     */
+    private boolean mIsQualityGovernorEnabled;
+
+    /**
+     * Current animation quality tier
+     */
+    @QualityTier
+    private int mQualityTier;
+
+    /**
+     * Quality tier decided by the quality governor
+     */
+    @QualityTier
+    private int mGovernorQualityTier;
+
+    /**
+     * Observer of the power save mode and the thermal status
+     */
+    private final PowerPolicyObserver mPowerPolicyObserver;
+
+    /**
+     * Enable flag of the power policy
+     */
+    private boolean mIsPowerPolicyEnabled;
+
+    /**
+     * Low power flag(power save mode or thermal throttling)
+     */
+    private boolean mIsLowPower;
+
+    /**
+     * QualityTierListener
+     */
+    private QualityTierListener mQualityTierListener;
+
+    /**
+     * Drop targets other than the trash
+     */
+    private final ArrayList<DropTarget> mDropTargetList;
+
+    /**
+     * Spatial index of the drop targets(indexed by the capture bounds)
+     */
+    private final SpatialGrid<DropTarget> mDropTargetGrid;
+
+    /**
+     * Candidates of the drop target(reused for the hit testing)
+     */
+    private final ArrayList<DropTarget> mDropTargetCandidates;
+
+    /**
+     * Capture bounds of the drop target(reused for the index)
+     */
+    private final Rect mDropTargetRect;
+
+    /**
+     * Drop target capturing the FloatingView(null if none or the trash)
+     */
+    private DropTarget mCapturedDropTarget;
+
+    /**
+     * DropTargetListener
+     */
+    private DropTargetListener mDropTargetListener;
+
+    /**
+     * Ticker to check the intersection with the trash once per frame(null before API 16)
+     */
+    private final FrameTicker mTrashIntersectionTicker;
+
+    /**
+     * Grace period before the windows of the hidden FloatingViews are released(ms)
+     */
+    private long mHiddenWindowReleaseDelay;
+
+    /**
+     * True if the windows of the hidden FloatingViews have been released
+     */
+    private boolean mIsHiddenWindowReleased;
+
+    /**
+     * Handler to release the hidden windows
+     */
+    private final HiddenWindowHandler mHiddenWindowHandler;
+
+    /**
+     * Dedicated thread of the UI(null if the UI runs on the thread which has created the FloatingViewManager)
+     */
+    private final HandlerThread mUiThread;
+
+    /**
+     * Background thread of the relayout solver(created on demand, quit when all the views are removed)
+     */
+    private HandlerThread mRelayoutThread;
+
+    /**
+     * Handler of the relayout solver thread
+     */
+    private Handler mRelayoutSolverHandler;
+
+    /**
+     * Handler of the UI thread
+     */
+    private final Handler mUiHandler;
+
+    /**
+     * Commands from the other threads than the UI thread
+     */
+    private final CommandQueue mCommandQueue;
+
+    /**
+     * Dispatcher of the listener callbacks
+     */
+    private final ListenerDispatcher mListenerDispatcher;
+
+    /**
+     * コンストラクタ<br/>
+     * The public methods of the FloatingViewManager API can be called from any thread. The calls from the other threads than the UI thread are queued without locks
+     * and applied on the UI thread on the next frame, and the repeated calls of the same setter in a frame are collapsed into the last one
+     * (the arguments must not be modified after the call).
+     * This does not apply to the callbacks of the implemented interfaces(e.g. onScreenChanged, onQualityTierChanged, onPowerPolicyChanged,
+     * onWindowLayoutCommitted and resolveEdgeSlot), which are called by the library on the UI thread and must not be called by the app.
      *
      * @param context  Context
      * @param listener FloatingViewListener
      */
     public FloatingViewManager(Context context, FloatingViewListener listener) {
+        this(context, listener, false);
+    }
+
+    /**
+     * Constructor<br/>
+     * If useDedicatedThread is true, the FloatingViewManager creates and owns a high-priority thread, and the windows are attached
+     * and animated on it, so the main thread of the app does not make the bubbles stutter.
+     * The public methods are queued to the dedicated thread(see {@link #FloatingViewManager(Context, FloatingViewListener)}).
+     * The listeners and the views passed to {@link #addViewToWindow(View, Options)} are called on the dedicated thread.
+     * Call {@link #release()} to quit the thread.
+     *
+     * @param context            Context
+     * @param listener           FloatingViewListener
+     * @param useDedicatedThread true if the UI runs on the dedicated thread
+     */
+    public FloatingViewManager(Context context, FloatingViewListener listener, boolean useDedicatedThread) {
+        if (useDedicatedThread) {
+            mUiThread = new HandlerThread("FloatingView", Process.THREAD_PRIORITY_DISPLAY);
+            mUiThread.start();
+            mUiHandler = new Handler(mUiThread.getLooper());
+        } else {
+            mUiThread = null;
+            mUiHandler = new Handler(Looper.myLooper() != null ? Looper.myLooper() : Looper.getMainLooper());
+        }
+        final Looper uiLooper = mUiHandler.getLooper();
+        mCommandQueue = new CommandQueue(mUiHandler);
+        mListenerDispatcher = new ListenerDispatcher(mUiHandler);
         mContext = context;
         mResources = context.getResources();
         mWindowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
@@ -210,8 +648,99 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
 
         // FloatingViewと連携するViewの構築
         mFloatingViewList = new ArrayList<>();
-        mFullscreenObserverView = new FullscreenObserverView(context, this);
-        mTrashView = new TrashView(context);
+        mBubbleIndex = new BubbleIndex((int) (DROP_TARGET_CELL_SIZE * mResources.getDisplayMetrics().density));
+        mNearbyFloatingViewList = new ArrayList<>();
+        mEdgeSlotAllocator = new EdgeSlotAllocator<>();
+        mIsEdgePackingEnabled = false;
+        // Clustering
+        mBubbleClusters = new BubbleClusters();
+        mIsClusterEnabled = false;
+        mClusterThreshold = CLUSTER_THRESHOLD_NONE;
+        mClusterDistance = (int) (CLUSTER_DISTANCE * mResources.getDisplayMetrics().density);
+        mClusterExpandSpacing = (int) (CLUSTER_EXPAND_SPACING * mResources.getDisplayMetrics().density);
+        mSettledFloatingViewList = new ArrayList<>();
+        mClusterHandler = new ClusterHandler(this, uiLooper);
+        mClusterRect = new Rect();
+        mClusterCandidateRect = new Rect();
+        // Relayout after the display has changed
+        mIsAsyncRelayoutEnabled = false;
+        mRelayoutFloatingViewList = new ArrayList<>();
+        mRelayoutOldLimitMap = new HashMap<>();
+        mRelayoutHandler = new RelayoutHandler(this, uiLooper);
+        // Last positions
+        mBubbleIdMap = new HashMap<>();
+        mPendingAddList = new ArrayList<>();
+        mPendingAddTask = new Runnable() {
+            @Override
+            public void run() {
+                runPendingAdds();
+            }
+        };
+        // Chain mode
+        mBubbleChain = new BubbleChain((int) (CHAIN_SPACING * mResources.getDisplayMetrics().density));
+        mIsChainModeEnabled = false;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mChainTicker = new FrameTicker(new Runnable() {
+                @Override
+                public void run() {
+                    // keep running until all the followers have caught up
+                    if (mBubbleChain.step(false)) {
+                        mChainTicker.requestFrame();
+                    }
+                }
+            });
+        } else {
+            mChainTicker = null;
+        }
+        if (mUiThread != null) {
+            // the views belong to the dedicated thread, so they are created on it(the caller waits)
+            final Context viewContext = context;
+            final FutureTask<View[]> createViewsTask = new FutureTask<>(new Callable<View[]>() {
+                @Override
+                public View[] call() {
+                    return new View[]{new FullscreenObserverView(viewContext, FloatingViewManager.this), new TrashView(viewContext, uiLooper)};
+                }
+            });
+            mUiHandler.post(createViewsTask);
+            final View[] views = awaitResult(createViewsTask);
+            mFullscreenObserverView = (FullscreenObserverView) views[0];
+            mTrashView = (TrashView) views[1];
+        } else {
+            mFullscreenObserverView = new FullscreenObserverView(context, this);
+            mTrashView = new TrashView(context, uiLooper);
+        }
+
+        // Jank-aware quality governor
+        mQualityTier = QUALITY_TIER_HIGH;
+        mGovernorQualityTier = QUALITY_TIER_HIGH;
+        mIsQualityGovernorEnabled = true;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mQualityGovernor = new FrameQualityGovernor(mWindowManager, this);
+        } else {
+            mQualityGovernor = null;
+        }
+        // Thermal- and battery-saver-aware animation policy
+        mPowerPolicyObserver = new PowerPolicyObserver(context, this);
+        mIsPowerPolicyEnabled = true;
+        // Drop targets
+        mDropTargetList = new ArrayList<>();
+        mDropTargetGrid = new SpatialGrid<>((int) (DROP_TARGET_CELL_SIZE * mResources.getDisplayMetrics().density));
+        mDropTargetCandidates = new ArrayList<>();
+        mDropTargetRect = new Rect();
+        // Intersection with the trash is checked once per frame
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mTrashIntersectionTicker = new FrameTicker(new Runnable() {
+                @Override
+                public void run() {
+                    updateTrashIntersection();
+                }
+            });
+        } else {
+            mTrashIntersectionTicker = null;
+        }
+        // Release of the hidden windows
+        mHiddenWindowReleaseDelay = HIDDEN_WINDOW_RELEASE_NEVER;
+        mHiddenWindowHandler = new HiddenWindowHandler(this, uiLooper);
     }
 
     /**
@@ -231,12 +760,640 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
     }
 
     /**
-     * 画面がフルスクリーンになった場合はViewを非表示にします。
+     * Check the intersection with the trash and update the state of the FloatingView and the trash icon.
      */
-    @Override
-    public void onScreenChanged(Rect windowRect, int visibility) {
-        // detect status bar
-        final boolean isFitSystemWindowTop = windowRect.top == 0;
+    private void updateTrashIntersection() {
+        if (!mIsMoveAccept || mTargetFloatingView == null) {
+            return;
+        }
+        // 今回の状態(the trash has priority over the other drop targets)
+        final boolean isTrashIntersecting = isIntersectWithTrash();
+        final DropTarget dropTarget = isTrashIntersecting ? null : findDropTarget();
+        final boolean isIntersecting = isTrashIntersecting || dropTarget != null;
+        // これまでの状態
+        final boolean isIntersect = mTargetFloatingView.getState() == FloatingView.STATE_INTERSECTING;
+        final DropTarget oldDropTarget = mCapturedDropTarget;
+        final boolean isTrashIntersect = isIntersect && oldDropTarget == null;
+        mCapturedDropTarget = dropTarget;
+
+        // 重なっている場合は、FloatingViewをTrashView(or the drop target)に追従させる
+        if (isTrashIntersecting) {
+            mTargetFloatingView.setIntersecting((int) mTrashView.getTrashIconCenterX(), (int) mTrashView.getTrashIconCenterY());
+        } else if (dropTarget != null) {
+            mTargetFloatingView.setIntersecting(dropTarget.getCenterX(), dropTarget.getCenterY());
+        }
+        // 重なり始めの場合
+        if (isTrashIntersecting && !isTrashIntersect) {
+            mTargetFloatingView.performHapticFeedback(HapticFeedbackConstants.LONG_PRESS);
+            mTrashView.setScaleTrashIcon(true);
+        }
+        // 重なり終わりの場合
+        else if (!isTrashIntersecting && isTrashIntersect) {
+            mTrashView.setScaleTrashIcon(false);
+        }
+        // drop target changed
+        if (dropTarget != oldDropTarget) {
+            final DropTargetListener listener = mDropTargetListener;
+            if (oldDropTarget != null && listener != null) {
+                mListenerDispatcher.dispatch(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onDropTargetExited(oldDropTarget);
+                    }
+                });
+            }
+            if (dropTarget != null) {
+                mTargetFloatingView.performHapticFeedback(HapticFeedbackConstants.LONG_PRESS);
+                if (listener != null) {
+                    mListenerDispatcher.dispatch(new Runnable() {
+                        @Override
+                        public void run() {
+                            listener.onDropTargetEntered(dropTarget);
+                        }
+                    });
+                }
+            }
+        }
+        if (!isIntersecting && isIntersect) {
+            mTargetFloatingView.setNormal();
+        }
+        updateBubbleOverlap(isIntersecting);
+    }
+
+    /**
+     * Check the overlap between the dragged FloatingView and the other FloatingViews.
+     *
+     * @param isIntersecting true if the dragged FloatingView is captured by the trash or the drop target
+     */
+    private void updateBubbleOverlap(boolean isIntersecting) {
+        if (mBubbleOverlapListener == null && mOverlappedFloatingView == null) {
+            return;
+        }
+        final FloatingView overlappedFloatingView = isIntersecting ? null : mBubbleIndex.findNearestOverlap(mTargetFloatingView);
+        final FloatingView oldOverlappedFloatingView = mOverlappedFloatingView;
+        if (overlappedFloatingView == oldOverlappedFloatingView) {
+            return;
+        }
+        mOverlappedFloatingView = overlappedFloatingView;
+        final BubbleOverlapListener listener = mBubbleOverlapListener;
+        if (listener == null) {
+            return;
+        }
+        final View draggedView = mTargetFloatingView.getChildAt(0);
+        if (oldOverlappedFloatingView != null) {
+            final View oldOverlappedView = oldOverlappedFloatingView.getChildAt(0);
+            mListenerDispatcher.dispatch(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onBubbleOverlapExited(draggedView, oldOverlappedView);
+                }
+            });
+        }
+        if (overlappedFloatingView != null) {
+            final View overlappedView = overlappedFloatingView.getChildAt(0);
+            mListenerDispatcher.dispatch(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onBubbleOverlapEntered(draggedView, overlappedView);
+                }
+            });
+        }
+    }
+
+    /**
+     * Update the members of the chain.
+     *
+     * @param leader leader of the chain
+     */
+    private void updateChainMembers(FloatingView leader) {
+        if (!mIsChainModeEnabled || leader == null) {
+            return;
+        }
+        mBubbleChain.setMembers(leader, mFloatingViewList);
+        // the followers do not settle by themselves
+        for (FloatingView floatingView : mFloatingViewList) {
+            if (floatingView != leader) {
+                mEdgeSlotAllocator.release(floatingView);
+            }
+        }
+        requestChainFrame();
+    }
+
+    /**
+     * Move the chain on the next frame.
+     */
+    private void requestChainFrame() {
+        if (!mIsChainModeEnabled) {
+            return;
+        }
+        if (mChainTicker != null) {
+            mChainTicker.requestFrame();
+        } else {
+            // INFO:the followers snap to the position before API 16
+            mBubbleChain.step(true);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onWindowLayoutCommitted(FloatingView floatingView) {
+        mBubbleIndex.update(floatingView);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean onRelayoutRequested(FloatingView floatingView, Rect oldPositionLimitRect, Rect newPositionLimitRect) {
+        if (!mIsAsyncRelayoutEnabled || mIsClusterExpanding || oldPositionLimitRect.isEmpty()) {
+            return false;
+        }
+        // INFO:the position has not been moved since the first request, so the first limit rect is kept
+        if (!mRelayoutOldLimitMap.containsKey(floatingView)) {
+            mRelayoutFloatingViewList.add(floatingView);
+            mRelayoutOldLimitMap.put(floatingView, new Rect(oldPositionLimitRect));
+        }
+        // the relayout being solved does not include this request
+        mRelayoutGeneration++;
+        mRelayoutTask = null;
+        mRelayoutHandler.removeMessages(RelayoutHandler.TIMEOUT);
+        // solve after all the FloatingViews have requested in this frame
+        if (!mRelayoutHandler.hasMessages(RelayoutHandler.SOLVE)) {
+            mRelayoutHandler.sendEmptyMessage(RelayoutHandler.SOLVE);
+        }
+        return true;
+    }
+
+    /**
+     * Solve the new positions of the FloatingViews waiting for the relayout on the background thread.
+     */
+    private void startRelayout() {
+        final RelayoutTask task = createRelayoutTask();
+        if (task == null) {
+            return;
+        }
+        mRelayoutTask = task;
+        getRelayoutSolverHandler().post(task);
+        mRelayoutHandler.sendMessageDelayed(mRelayoutHandler.obtainMessage(RelayoutHandler.TIMEOUT, task.generation, 0), RELAYOUT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Snapshot the FloatingViews waiting for the relayout.
+     *
+     * @return {@link RelayoutTask} or null if no FloatingView is waiting
+     */
+    private RelayoutTask createRelayoutTask() {
+        final int count = mRelayoutFloatingViewList.size();
+        if (count == 0) {
+            return null;
+        }
+        final FloatingView[] floatingViews = mRelayoutFloatingViewList.toArray(new FloatingView[count]);
+        final int[] positions = new int[count * 2];
+        final int[] heights = new int[count];
+        final int[] oldLimits = new int[count * RelayoutSolver.RECT_SIZE];
+        final int[] newLimits = new int[count * RelayoutSolver.RECT_SIZE];
+        final Rect limitRect = new Rect();
+        for (int i = 0; i < count; i++) {
+            final FloatingView floatingView = floatingViews[i];
+            final WindowManager.LayoutParams params = floatingView.getWindowLayoutParams();
+            positions[i * 2] = params.x;
+            positions[i * 2 + 1] = params.y;
+            heights[i] = floatingView.getHeight();
+            putRect(mRelayoutOldLimitMap.get(floatingView), oldLimits, i);
+            floatingView.getPositionLimitRect(limitRect);
+            putRect(limitRect, newLimits, i);
+        }
+        mRelayoutGeneration++;
+        return new RelayoutTask(mRelayoutHandler, mRelayoutGeneration, floatingViews, positions, heights, oldLimits, newLimits, mIsEdgePackingEnabled);
+    }
+
+    /**
+     * Wait for the result of the task run on the dedicated thread.
+     *
+     * @param task FutureTask
+     * @return result of the task
+     */
+    private static <T> T awaitResult(FutureTask<T> task) {
+        boolean isInterrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    // the views must be created anyway
+                    isInterrupted = true;
+                } catch (ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } finally {
+            if (isInterrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Called when the relayout has been solved on the background thread.
+     *
+     * @param task {@link RelayoutTask}
+     */
+    private void onRelayoutSolved(RelayoutTask task) {
+        if (task != mRelayoutTask || task.generation != mRelayoutGeneration) {
+            return;
+        }
+        mRelayoutHandler.removeMessages(RelayoutHandler.TIMEOUT);
+        applyRelayout(task.floatingViews, task.goals);
+    }
+
+    /**
+     * Called when the relayout has not been solved in time.<br/>
+     * The positions are only rescaled on the main thread(no edge packing), and the late result is discarded.
+     *
+     * @param generation generation of the relayout
+     */
+    private void onRelayoutTimeout(int generation) {
+        final RelayoutTask task = mRelayoutTask;
+        if (task == null || generation != mRelayoutGeneration) {
+            return;
+        }
+        mRelayoutGeneration++;
+        final int[] goals = RelayoutSolver.solve(task.floatingViews.length, task.positions, task.heights, task.oldLimits, task.newLimits, false);
+        applyRelayout(task.floatingViews, goals);
+    }
+
+    /**
+     * Apply the solved positions to all the FloatingViews at once(in one frame).
+     *
+     * @param floatingViews FloatingViews
+     * @param goals         positions(x0, y0, x1, y1, ...)
+     */
+    private void applyRelayout(FloatingView[] floatingViews, int[] goals) {
+        mRelayoutTask = null;
+        // the old slots belong to the previous display
+        for (FloatingView floatingView : floatingViews) {
+            mEdgeSlotAllocator.release(floatingView);
+        }
+        for (int i = 0; i < floatingViews.length; i++) {
+            final FloatingView floatingView = floatingViews[i];
+            if (!mRelayoutOldLimitMap.containsKey(floatingView)) {
+                continue;
+            }
+            floatingView.applyRelayout(goals[i * 2], goals[i * 2 + 1]);
+        }
+        mRelayoutFloatingViewList.clear();
+        mRelayoutOldLimitMap.clear();
+    }
+
+    /**
+     * Cancel the relayout.
+     */
+    private void cancelRelayout() {
+        mRelayoutGeneration++;
+        mRelayoutTask = null;
+        mRelayoutHandler.removeMessages(RelayoutHandler.SOLVE);
+        mRelayoutHandler.removeMessages(RelayoutHandler.TIMEOUT);
+        mRelayoutFloatingViewList.clear();
+        mRelayoutOldLimitMap.clear();
+    }
+
+    /**
+     * Put the Rect to the array.
+     *
+     * @param rect  Rect
+     * @param array array of the rects
+     * @param index index of the rect
+     */
+    private static void putRect(Rect rect, int[] array, int index) {
+        final int offset = index * RelayoutSolver.RECT_SIZE;
+        array[offset] = rect.left;
+        array[offset + 1] = rect.top;
+        array[offset + 2] = rect.right;
+        array[offset + 3] = rect.bottom;
+    }
+
+    /**
+     * Get the handler of the relayout solver thread.
+     *
+     * @return Handler
+     */
+    private Handler getRelayoutSolverHandler() {
+        if (mRelayoutSolverHandler == null) {
+            mRelayoutThread = new HandlerThread("FloatingViewRelayout", Process.THREAD_PRIORITY_BACKGROUND);
+            mRelayoutThread.start();
+            mRelayoutSolverHandler = new Handler(mRelayoutThread.getLooper());
+        }
+        return mRelayoutSolverHandler;
+    }
+
+    /**
+     * Quit the relayout solver thread(the pending result is discarded).
+     */
+    private void quitRelayoutThread() {
+        if (mRelayoutThread == null) {
+            return;
+        }
+        mRelayoutThread.quit();
+        mRelayoutThread = null;
+        mRelayoutSolverHandler = null;
+        mRelayoutTask = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onWindowLayoutSettled(FloatingView floatingView) {
+        saveLayout(floatingView);
+        if (!mIsClusterEnabled || mIsClusterExpanding) {
+            return;
+        }
+        if (!mSettledFloatingViewList.contains(floatingView)) {
+            mSettledFloatingViewList.add(floatingView);
+        }
+        // INFO:the window can not be removed in its own layout pass
+        if (!mClusterHandler.hasMessages(ClusterHandler.UPDATE_CLUSTERS)) {
+            mClusterHandler.sendEmptyMessage(ClusterHandler.UPDATE_CLUSTERS);
+        }
+    }
+
+    /**
+     * Save the layout of the settled FloatingView.
+     *
+     * @param floatingView FloatingView
+     */
+    private void saveLayout(FloatingView floatingView) {
+        final String bubbleId = mBubbleIdMap.get(floatingView);
+        if (bubbleId == null || mBubbleClusters.isMember(floatingView)) {
+            return;
+        }
+        final WindowManager.LayoutParams params = floatingView.getWindowLayoutParams();
+        mPositionStore.putEntry(bubbleId, mResources.getConfiguration().orientation, params.x, params.y,
+                floatingView.getMeasuredWidth(), floatingView.getMeasuredHeight());
+    }
+
+    /**
+     * Wait for the saved layouts to be loaded before attaching the FloatingView with the bubble ID.<br/>
+     * The later calls also wait to keep the order of the windows.
+     *
+     * @param view    View
+     * @param options Options
+     * @return true if the call has been deferred
+     */
+    private boolean deferAddUntilLoaded(final View view, final Options options) {
+        if (options.bubbleId != null && mPositionStore == null) {
+            mPositionStore = PositionStore.getInstance(mContext);
+        }
+        if (mPositionStore == null || mPositionStore.isLoaded() || (options.bubbleId == null && mPendingAddList.isEmpty())) {
+            return false;
+        }
+        if (mPendingAddList.isEmpty()) {
+            mPositionStore.runWhenLoaded(mUiHandler, mPendingAddTask);
+        }
+        mPendingAddList.add(new Runnable() {
+            @Override
+            public void run() {
+                addViewToWindow(view, options);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Run the calls of addViewToWindow deferred until the load.
+     */
+    private void runPendingAdds() {
+        final Runnable[] pendingAdds = mPendingAddList.toArray(new Runnable[mPendingAddList.size()]);
+        mPendingAddList.clear();
+        for (Runnable pendingAdd : pendingAdds) {
+            pendingAdd.run();
+        }
+    }
+
+    /**
+     * Restore the saved layout of the FloatingView.<br/>
+     * The FloatingView appears at the settled position on the first frame, without the initial move.
+     *
+     * @param floatingView FloatingView
+     * @param bubbleId     bubble ID
+     */
+    private void restoreLayout(FloatingView floatingView, String bubbleId) {
+        mBubbleIdMap.put(floatingView, bubbleId);
+        final PositionStore.Entry entry = mPositionStore.getEntry(bubbleId, mResources.getConfiguration().orientation);
+        if (entry != null) {
+            floatingView.setRestoredLayout(entry.x, entry.y, entry.width, entry.height);
+        }
+    }
+
+    /**
+     * Cluster the settled FloatingViews(only the FloatingViews settled since the last update are checked).
+     */
+    private void updateClusters() {
+        final int size = mSettledFloatingViewList.size();
+        for (int i = 0; i < size; i++) {
+            final FloatingView floatingView = mSettledFloatingViewList.get(i);
+            // removed, clustered or touched again
+            if (!mFloatingViewList.contains(floatingView) || mBubbleClusters.isMember(floatingView)
+                    || !ViewCompat.isAttachedToWindow(floatingView) || (floatingView == mTargetFloatingView && mIsMoveAccept)) {
+                continue;
+            }
+            final FloatingView anchor = findClusterAnchor(floatingView);
+            if (anchor != null) {
+                clusterInto(anchor, floatingView);
+            }
+        }
+        mSettledFloatingViewList.clear();
+    }
+
+    /**
+     * Find the FloatingView into which the settled FloatingView is clustered.
+     *
+     * @param floatingView settled FloatingView
+     * @return anchor of the cluster or null
+     */
+    private FloatingView findClusterAnchor(FloatingView floatingView) {
+        floatingView.getWindowLayoutRect(mClusterRect);
+        // close to the other FloatingView
+        final ArrayList<FloatingView> nearbyFloatingViewList = mNearbyFloatingViewList;
+        nearbyFloatingViewList.clear();
+        mBubbleIndex.queryNear(floatingView, mClusterDistance, nearbyFloatingViewList);
+        FloatingView anchor = findNearestFloatingView(nearbyFloatingViewList, floatingView);
+        nearbyFloatingViewList.clear();
+        if (anchor != null) {
+            return anchor;
+        }
+        // too many windows
+        final int windowCount = mFloatingViewList.size() - mBubbleClusters.getMemberCount();
+        if (mClusterThreshold > CLUSTER_THRESHOLD_NONE && windowCount > mClusterThreshold) {
+            anchor = findNearestFloatingView(mFloatingViewList, floatingView);
+        }
+        return anchor;
+    }
+
+    /**
+     * Find the FloatingView nearest to the bounds in {@link #mClusterRect}.
+     *
+     * @param candidates   candidates
+     * @param floatingView FloatingView to be excluded
+     * @return nearest FloatingView or null
+     */
+    private FloatingView findNearestFloatingView(List<FloatingView> candidates, FloatingView floatingView) {
+        FloatingView nearestFloatingView = null;
+        long nearestDistance = Long.MAX_VALUE;
+        final int size = candidates.size();
+        for (int i = 0; i < size; i++) {
+            final FloatingView candidate = candidates.get(i);
+            if (candidate == floatingView || mBubbleClusters.isMember(candidate) || !ViewCompat.isAttachedToWindow(candidate)) {
+                continue;
+            }
+            candidate.getWindowLayoutRect(mClusterCandidateRect);
+            final long dx = mClusterCandidateRect.centerX() - mClusterRect.centerX();
+            final long dy = mClusterCandidateRect.centerY() - mClusterRect.centerY();
+            final long distance = dx * dx + dy * dy;
+            if (distance < nearestDistance) {
+                nearestDistance = distance;
+                nearestFloatingView = candidate;
+            }
+        }
+        return nearestFloatingView;
+    }
+
+    /**
+     * Cluster the FloatingView into the anchor and release its window.
+     *
+     * @param anchor       anchor of the cluster(group bubble)
+     * @param floatingView FloatingView to be clustered
+     */
+    private void clusterInto(FloatingView anchor, FloatingView floatingView) {
+        final int clusterCount = mBubbleClusters.add(anchor, floatingView);
+        floatingView.setClusterCount(0);
+        anchor.setClusterCount(clusterCount);
+        removeViewImmediate(floatingView);
+        mBubbleIndex.remove(floatingView);
+        mEdgeSlotAllocator.release(floatingView);
+        if (mOverlappedFloatingView == floatingView) {
+            mOverlappedFloatingView = null;
+        }
+        if (mTargetFloatingView == floatingView) {
+            mTargetFloatingView = anchor;
+        }
+    }
+
+    /**
+     * Expand the cluster and attach the windows of the members again.<br/>
+     * The members are lined up along the edge from the anchor, inside their position limits(and in free edge slots if edge packing is enabled).
+     *
+     * @param anchor anchor of the cluster(group bubble)
+     */
+    private void expandCluster(FloatingView anchor) {
+        final List<FloatingView> members = mBubbleClusters.removeAnchor(anchor);
+        anchor.setClusterCount(0);
+        if (members.isEmpty()) {
+            return;
+        }
+        final WindowManager.LayoutParams anchorParams = anchor.getWindowLayoutParams();
+        final int step = anchor.getHeight() + mClusterExpandSpacing;
+        // line up downward, or upward if there is no space below
+        final int direction = anchorParams.y - members.size() * step >= 0 ? -1 : 1;
+        mIsClusterExpanding = true;
+        final Rect limitRect = new Rect();
+        final int size = members.size();
+        for (int i = 0; i < size; i++) {
+            final FloatingView member = members.get(i);
+            member.getPositionLimitRect(limitRect);
+            if (limitRect.isEmpty()) {
+                // not laid out yet(the limit is set on the first layout)
+                member.setWindowPosition(anchorParams.x, anchorParams.y + direction * (i + 1) * step);
+            } else {
+                final int positionX = Math.min(Math.max(limitRect.left, anchorParams.x), limitRect.right);
+                int positionY = Math.min(Math.max(limitRect.top, anchorParams.y + direction * (i + 1) * step), limitRect.bottom);
+                if (mIsEdgePackingEnabled && (positionX <= limitRect.left || positionX >= limitRect.right)) {
+                    positionY = resolveEdgeSlot(member, positionX >= limitRect.right, positionY, limitRect.top, limitRect.bottom);
+                }
+                member.setWindowPosition(positionX, positionY);
+            }
+            // the windows are attached when the hidden windows are restored
+            if (mIsHiddenWindowReleased) {
+                continue;
+            }
+            member.onRestoreWindow();
+            mWindowManager.addView(member, member.getWindowLayoutParams());
+            mBubbleIndex.update(member);
+        }
+        mIsClusterExpanding = false;
+        if (!mIsHiddenWindowReleased) {
+            // TrashView is always on top
+            removeViewImmediate(mTrashView);
+            mWindowManager.addView(mTrashView, mTrashView.getWindowLayoutParams());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int resolveEdgeSlot(FloatingView floatingView, boolean isRightEdge, int goalPositionY, int minPositionY, int maxPositionY) {
+        return mEdgeSlotAllocator.allocate(floatingView, isRightEdge, goalPositionY, floatingView.getHeight(), minPositionY, maxPositionY);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void releaseEdgeSlot(FloatingView floatingView) {
+        mEdgeSlotAllocator.release(floatingView);
+    }
+
+    /**
+     * Find the nearest drop target capturing the center of the FloatingView.
+     *
+     * @return DropTarget or null
+     */
+    private DropTarget findDropTarget() {
+        if (mDropTargetList.isEmpty()) {
+            return null;
+        }
+        mTargetFloatingView.getWindowDrawingRect(mFloatingViewRect);
+        final int centerX = mFloatingViewRect.centerX();
+        final int centerY = mFloatingViewRect.centerY();
+        // INFO:only the targets in the cell of the point are tested, so the cost does not grow with the number of the targets
+        final List<DropTarget> candidates = mDropTargetCandidates;
+        candidates.clear();
+        mDropTargetGrid.query(centerX, centerY, candidates);
+        DropTarget nearestDropTarget = null;
+        long nearestDistance = Long.MAX_VALUE;
+        final int size = candidates.size();
+        for (int i = 0; i < size; i++) {
+            final DropTarget dropTarget = candidates.get(i);
+            if (!dropTarget.isCaptured(centerX, centerY)) {
+                continue;
+            }
+            final long distance = dropTarget.getDistanceSquared(centerX, centerY);
+            if (distance < nearestDistance) {
+                nearestDistance = distance;
+                nearestDropTarget = dropTarget;
+            }
+        }
+        candidates.clear();
+        return nearestDropTarget;
+    }
+
+    /**
+     * 画面がフルスクリーンになった場合はViewを非表示にします。
+     */
+    @Override
+    public void onScreenChanged(Rect windowRect, int visibility) {
+        // detect status bar
+        final boolean isFitSystemWindowTop = windowRect.top == 0;
         boolean isHideStatusBar;
         if (Build.VERSION.SDK_INT <= Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1 && visibility != FullscreenObserverView.NO_LAST_VISIBILITY) {
             // Support for screen rotation when setSystemUiVisibility is used
@@ -273,12 +1430,24 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
         final int state = mTargetFloatingView.getState();
         // 重なっていない場合は全て非表示処理
         if (state == FloatingView.STATE_NORMAL) {
+            if (!isFitSystemWindowTop) {
+                restoreHiddenWindows();
+            }
             final int size = mFloatingViewList.size();
             for (int i = 0; i < size; i++) {
                 final FloatingView floatingView = mFloatingViewList.get(i);
                 floatingView.setVisibility(isFitSystemWindowTop ? View.GONE : View.VISIBLE);
             }
             mTrashView.dismiss();
+            if (isFitSystemWindowTop) {
+                scheduleHiddenWindowRelease();
+            }
+        }
+        // Captured by the drop target(not deleted)
+        else if (state == FloatingView.STATE_INTERSECTING && mCapturedDropTarget != null) {
+            mCapturedDropTarget = null;
+            mTargetFloatingView.setNormal();
+            mTrashView.dismiss();
         }
         // 重なっている場合は削除
         else if (state == FloatingView.STATE_INTERSECTING) {
@@ -295,6 +1464,52 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
         mTrashView.updateActionTrashIcon(mTargetFloatingView.getMeasuredWidth(), mTargetFloatingView.getMeasuredHeight(), mTargetFloatingView.getShape());
     }
 
+    /**
+     * Update the quality tier decided by the quality governor.
+     */
+    @Override
+    public void onQualityTierChanged(@QualityTier int qualityTier) {
+        mGovernorQualityTier = qualityTier;
+        updateQualityTier();
+    }
+
+    /**
+     * Use the low power profile in the power save mode or the thermal throttling.
+     */
+    @Override
+    public void onPowerPolicyChanged(boolean isLowPower) {
+        mIsLowPower = isLowPower;
+        updateQualityTier();
+    }
+
+    /**
+     * Apply the quality tier to all the views.
+     * The low power profile takes precedence over the quality governor.
+     */
+    private void updateQualityTier() {
+        final int qualityTier = mIsLowPower ? QUALITY_TIER_LOW_POWER : mGovernorQualityTier;
+        if (mQualityTier == qualityTier) {
+            return;
+        }
+        mQualityTier = qualityTier;
+        final int size = mFloatingViewList.size();
+        for (int i = 0; i < size; i++) {
+            final FloatingView floatingView = mFloatingViewList.get(i);
+            floatingView.setQualityTier(qualityTier);
+        }
+        mTrashView.setQualityTier(qualityTier);
+
+        final QualityTierListener listener = mQualityTierListener;
+        if (listener != null) {
+            mListenerDispatcher.dispatch(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onQualityTierChanged(qualityTier);
+                }
+            });
+        }
+    }
+
     /**
      * FloatingViewのタッチをロックします。
      */
@@ -343,51 +1558,101 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
             return false;
         }
 
+        // the pending intersection check belongs to the previous position
+        if (mTrashIntersectionTicker != null && action != MotionEvent.ACTION_MOVE) {
+            mTrashIntersectionTicker.flush();
+        }
+
         final int state = mTargetFloatingView.getState();
         mTargetFloatingView = (FloatingView) v;
 
         // 押下
         if (action == MotionEvent.ACTION_DOWN) {
-            // 処理なし
             mIsMoveAccept = true;
+            final WindowManager.LayoutParams params = mTargetFloatingView.getWindowLayoutParams();
+            mTouchDownWindowX = params.x;
+            mTouchDownWindowY = params.y;
+            if (!mBubbleChain.isLeader(mTargetFloatingView)) {
+                updateChainMembers(mTargetFloatingView);
+            }
+            // Measure the frame overruns while dragging
+            if (mQualityGovernor != null && mIsQualityGovernorEnabled) {
+                mQualityGovernor.start();
+            }
         }
         // 移動
         else if (action == MotionEvent.ACTION_MOVE) {
-            // 今回の状態
-            final boolean isIntersecting = isIntersectWithTrash();
-            // これまでの状態
-            final boolean isIntersect = state == FloatingView.STATE_INTERSECTING;
-            // 重なっている場合は、FloatingViewをTrashViewに追従させる
-            if (isIntersecting) {
-                mTargetFloatingView.setIntersecting((int) mTrashView.getTrashIconCenterX(), (int) mTrashView.getTrashIconCenterY());
-            }
-            // 重なり始めの場合
-            if (isIntersecting && !isIntersect) {
-                mTargetFloatingView.performHapticFeedback(HapticFeedbackConstants.LONG_PRESS);
-                mTrashView.setScaleTrashIcon(true);
-            }
-            // 重なり終わりの場合
-            else if (!isIntersecting && isIntersect) {
-                mTargetFloatingView.setNormal();
-                mTrashView.setScaleTrashIcon(false);
+            // INFO:The intersection is checked on the next frame, not on every MotionEvent(high-rate touch digitizers)
+            if (mTrashIntersectionTicker != null) {
+                mTrashIntersectionTicker.requestFrame();
+            } else {
+                updateTrashIntersection();
             }
-
+            requestChainFrame();
         }
         // 押上、キャンセル
         else if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
             // 重なっている場合
-            if (state == FloatingView.STATE_INTERSECTING) {
+            if (state == FloatingView.STATE_INTERSECTING && mCapturedDropTarget != null) {
+                // Dropped on the drop target(the FloatingView moves back to the edge)
+                final DropTarget dropTarget = mCapturedDropTarget;
+                mCapturedDropTarget = null;
+                mTargetFloatingView.setNormal();
+                final DropTargetListener listener = mDropTargetListener;
+                if (listener != null) {
+                    mListenerDispatcher.dispatch(new Runnable() {
+                        @Override
+                        public void run() {
+                            listener.onDropped(dropTarget);
+                        }
+                    });
+                }
+            } else if (state == FloatingView.STATE_INTERSECTING) {
                 // FloatingViewを削除し、拡大状態を解除
                 mTargetFloatingView.setFinishing();
                 mTrashView.setScaleTrashIcon(false);
+            } else if (mOverlappedFloatingView != null && mBubbleOverlapListener != null) {
+                final BubbleOverlapListener listener = mBubbleOverlapListener;
+                final View draggedView = mTargetFloatingView.getChildAt(0);
+                final View overlappedView = mOverlappedFloatingView.getChildAt(0);
+                mListenerDispatcher.dispatch(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onBubbleDropped(draggedView, overlappedView);
+                    }
+                });
+            }
+            mOverlappedFloatingView = null;
+            // Tap on the group bubble
+            final WindowManager.LayoutParams targetParams = mTargetFloatingView.getWindowLayoutParams();
+            if (action == MotionEvent.ACTION_UP && state == FloatingView.STATE_NORMAL && mBubbleClusters.isAnchor(mTargetFloatingView)
+                    && targetParams.x == mTouchDownWindowX && targetParams.y == mTouchDownWindowY) {
+                expandCluster(mTargetFloatingView);
             }
             mIsMoveAccept = false;
+            // the followers trail the leader until it has settled
+            requestChainFrame();
+            // Continue measuring until the snap animation is finished
+            if (mQualityGovernor != null) {
+                mQualityGovernor.stop();
+            }
 
             // Touch finish callback
+            final boolean isFinishing = mTargetFloatingView.getState() == FloatingView.STATE_FINISHING;
+            final WindowManager.LayoutParams params = mTargetFloatingView.getWindowLayoutParams();
+            final int x = params.x;
+            final int y = params.y;
+            final BubbleContent bubbleContent = getTouchedBubbleContent();
+            if (mBubbleContentListener != null && bubbleContent != null) {
+                mBubbleContentListener.onBubbleTouchFinished(bubbleContent, isFinishing, x, y);
+            }
             if (mFloatingViewListener != null) {
-                final boolean isFinishing = mTargetFloatingView.getState() == FloatingView.STATE_FINISHING;
-                final WindowManager.LayoutParams params = mTargetFloatingView.getWindowLayoutParams();
-                mFloatingViewListener.onTouchFinished(isFinishing, params.x, params.y);
+                mListenerDispatcher.dispatch(new Runnable() {
+                    @Override
+                    public void run() {
+                        mFloatingViewListener.onTouchFinished(isFinishing, x, y);
+                    }
+                });
             }
         }
 
@@ -401,83 +1666,666 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
             mTrashView.onTouchFloatingView(event, params.x, params.y);
         }
 
-        return false;
+        return false;
+    }
+
+    /**
+     * 固定削除アイコンの画像を設定します。
+     *
+     * @param resId drawable ID
+     */
+    public void setFixedTrashIconImage(@DrawableRes final int resId) {
+        if (shouldEnqueue()) {
+            mCommandQueue.enqueue("fixedTrashIcon", new Runnable() {
+                @Override
+                public void run() {
+                    setFixedTrashIconImage(resId);
+                }
+            });
+            return;
+        }
+        mTrashView.setFixedTrashIconImage(resId);
+    }
+
+    /**
+     * アクションする削除アイコンの画像を設定します。
+     *
+     * @param resId drawable ID
+     */
+    public void setActionTrashIconImage(@DrawableRes final int resId) {
+        if (shouldEnqueue()) {
+            mCommandQueue.enqueue("actionTrashIcon", new Runnable() {
+                @Override
+                public void run() {
+                    setActionTrashIconImage(resId);
+                }
+            });
+            return;
+        }
+        mTrashView.setActionTrashIconImage(resId);
+    }
+
+    /**
+     * 固定削除アイコンを設定します。
+     *
+     * @param drawable Drawable
+     */
+    public void setFixedTrashIconImage(final Drawable drawable) {
+        if (shouldEnqueue()) {
+            mCommandQueue.enqueue("fixedTrashIcon", new Runnable() {
+                @Override
+                public void run() {
+                    setFixedTrashIconImage(drawable);
+                }
+            });
+            return;
+        }
+        mTrashView.setFixedTrashIconImage(drawable);
+    }
+
+    /**
+     * アクション用削除アイコンを設定します。
+     *
+     * @param drawable Drawable
+     */
+    public void setActionTrashIconImage(final Drawable drawable) {
+        if (shouldEnqueue()) {
+            mCommandQueue.enqueue("actionTrashIcon", new Runnable() {
+                @Override
+                public void run() {
+                    setActionTrashIconImage(drawable);
+                }
+            });
+            return;
+        }
+        mTrashView.setActionTrashIconImage(drawable);
+    }
+
+    /**
+     * 表示モードを変更します。
+     *
+     * @param displayMode {@link #DISPLAY_MODE_SHOW_ALWAYS} or {@link #DISPLAY_MODE_HIDE_ALWAYS} or {@link #DISPLAY_MODE_HIDE_FULLSCREEN}
+     */
+    public void setDisplayMode(@DisplayMode final int displayMode) {
+        if (shouldEnqueue()) {
+            mCommandQueue.enqueue("displayMode", new Runnable() {
+                @Override
+                public void run() {
+                    setDisplayMode(displayMode);
+                }
+            });
+            return;
+        }
+        mDisplayMode = displayMode;
+        // 常に表示/フルスクリーン時に非表示にするモードの場合
+        if (mDisplayMode == DISPLAY_MODE_SHOW_ALWAYS || mDisplayMode == DISPLAY_MODE_HIDE_FULLSCREEN) {
+            restoreHiddenWindows();
+            for (FloatingView floatingView : mFloatingViewList) {
+                floatingView.setVisibility(View.VISIBLE);
+            }
+        }
+        // 常に非表示にするモードの場合
+        else if (mDisplayMode == DISPLAY_MODE_HIDE_ALWAYS) {
+            for (FloatingView floatingView : mFloatingViewList) {
+                floatingView.setVisibility(View.GONE);
+            }
+            mTrashView.dismiss();
+            scheduleHiddenWindowRelease();
+        }
+    }
+
+    /**
+     * TrashViewの表示・非表示を設定します。
+     *
+     * @param enabled trueの場合は表示
+     */
+    public void setTrashViewEnabled(final boolean enabled) {
+        if (shouldEnqueue()) {
+            mCommandQueue.enqueue("trashViewEnabled", new Runnable() {
+                @Override
+                public void run() {
+                    setTrashViewEnabled(enabled);
+                }
+            });
+            return;
+        }
+        mTrashView.setTrashEnabled(enabled);
+    }
+
+    /**
+     * TrashViewの表示非表示状態を取得します。
+     *
+     * @return trueの場合は表示状態（重なり判定が有効の状態）
+     */
+    public boolean isTrashViewEnabled() {
+        return mTrashView.isTrashEnabled();
+    }
+
+    /**
+     * Enable or disable the quality governor.
+     * When enabled, the animation quality is degraded while frames are consistently late(default is true).
+     *
+     * @param enabled true if the quality governor is enabled
+     */
+    public void setQualityGovernorEnabled(final boolean enabled) {
+        if (shouldEnqueue()) {
+            mCommandQueue.enqueue("qualityGovernorEnabled", new Runnable() {
+                @Override
+                public void run() {
+                    setQualityGovernorEnabled(enabled);
+                }
+            });
+            return;
+        }
+        mIsQualityGovernorEnabled = enabled;
+        if (!enabled && mQualityGovernor != null) {
+            // back to QUALITY_TIER_HIGH
+            mQualityGovernor.reset();
+        }
+    }
+
+    /**
+     * Enable or disable the low power profile in the power save mode(API 21+) or the thermal throttling(API 29+).
+     * (default is true)
+     *
+     * @param enabled true if the low power profile is used
+     */
+    public void setPowerPolicyEnabled(final boolean enabled) {
+        if (shouldEnqueue()) {
+            mCommandQueue.enqueue("powerPolicyEnabled", new Runnable() {
+                @Override
+                public void run() {
+                    setPowerPolicyEnabled(enabled);
+                }
+            });
+            return;
+        }
+        mIsPowerPolicyEnabled = enabled;
+        if (enabled) {
+            if (!mFloatingViewList.isEmpty()) {
+                mPowerPolicyObserver.start();
+            }
+        } else {
+            mPowerPolicyObserver.stop();
+            mIsLowPower = false;
+            updateQualityTier();
+        }
+    }
+
+    /**
+     * Get the current animation quality tier.
+     *
+     * @return {@link #QUALITY_TIER_HIGH} or {@link #QUALITY_TIER_MEDIUM} or {@link #QUALITY_TIER_LOW} or {@link #QUALITY_TIER_LOW_POWER}
+     */
+    @QualityTier
+    public int getQualityTier() {
+        return mQualityTier;
+    }
+
+    /**
+     * Set the listener of the animation quality tier.
+     *
+     * @param listener {@link QualityTierListener}
+     */
+    public void setQualityTierListener(final QualityTierListener listener) {
+        if (shouldEnqueue()) {
+            mCommandQueue.enqueue("qualityTierListener", new Runnable() {
+                @Override
+                public void run() {
+                    setQualityTierListener(listener);
+                }
+            });
+            return;
+        }
+        mQualityTierListener = listener;
+    }
+
+    /**
+     * Set how the listeners are called(default LISTENER_DISPATCH_INLINE).<br/>
+     * Use LISTENER_DISPATCH_NEXT_FRAME or LISTENER_DISPATCH_EXECUTOR to keep slow listeners out of the touch events(the snap animation starts right after ACTION_UP).
+     * The values passed to the listeners are taken at the time of the event.
+     * With LISTENER_DISPATCH_EXECUTOR the listeners are called on the executor thread, so do not touch the views passed to {@link BubbleOverlapListener} there.
+     *
+     * @param dispatchMode LISTENER_DISPATCH_INLINE or LISTENER_DISPATCH_NEXT_FRAME or LISTENER_DISPATCH_EXECUTOR
+     */
+    public void setListenerDispatchMode(@ListenerDispatchMode final int dispatchMode) {
+        if (shouldEnqueue()) {
+            mCommandQueue.enqueue("listenerDispatchMode", new Runnable() {
+                @Override
+                public void run() {
+                    setListenerDispatchMode(dispatchMode);
+                }
+            });
+            return;
+        }
+        mListenerDispatcher.setDispatchMode(dispatchMode);
+    }
+
+    /**
+     * Set the executor of LISTENER_DISPATCH_EXECUTOR.
+     *
+     * @param executor Executor(null to call the listeners on the next frame)
+     */
+    public void setListenerExecutor(final Executor executor) {
+        if (shouldEnqueue()) {
+            mCommandQueue.enqueue("listenerExecutor", new Runnable() {
+                @Override
+                public void run() {
+                    setListenerExecutor(executor);
+                }
+            });
+            return;
+        }
+        mListenerDispatcher.setExecutor(executor);
+    }
+
+    /**
+     * Add the drop target.<br/>
+     * The trash has priority over the drop targets.
+     *
+     * @param dropTarget {@link DropTarget}
+     */
+    public void addDropTarget(@NonNull final DropTarget dropTarget) {
+        if (shouldEnqueue()) {
+            mCommandQueue.enqueue(null, new Runnable() {
+                @Override
+                public void run() {
+                    addDropTarget(dropTarget);
+                }
+            });
+            return;
+        }
+        if (mDropTargetList.contains(dropTarget)) {
+            return;
+        }
+        mDropTargetList.add(dropTarget);
+        dropTarget.getCaptureBounds(mDropTargetRect);
+        mDropTargetGrid.insert(dropTarget, mDropTargetRect);
+    }
+
+    /**
+     * Remove the drop target.
+     *
+     * @param dropTarget {@link DropTarget}
+     */
+    public void removeDropTarget(@NonNull final DropTarget dropTarget) {
+        if (shouldEnqueue()) {
+            mCommandQueue.enqueue(null, new Runnable() {
+                @Override
+                public void run() {
+                    removeDropTarget(dropTarget);
+                }
+            });
+            return;
+        }
+        if (!mDropTargetList.remove(dropTarget)) {
+            return;
+        }
+        dropTarget.getCaptureBounds(mDropTargetRect);
+        mDropTargetGrid.remove(dropTarget, mDropTargetRect);
+        if (mCapturedDropTarget == dropTarget) {
+            mCapturedDropTarget = null;
+            if (mTargetFloatingView != null && mTargetFloatingView.getState() == FloatingView.STATE_INTERSECTING) {
+                mTargetFloatingView.setNormal();
+            }
+        }
+    }
+
+    /**
+     * Remove all the drop targets.
+     */
+    public void clearDropTargets() {
+        if (shouldEnqueue()) {
+            mCommandQueue.enqueue(null, new Runnable() {
+                @Override
+                public void run() {
+                    clearDropTargets();
+                }
+            });
+            return;
+        }
+        mDropTargetList.clear();
+        mDropTargetGrid.clear();
+        if (mCapturedDropTarget != null) {
+            mCapturedDropTarget = null;
+            if (mTargetFloatingView != null && mTargetFloatingView.getState() == FloatingView.STATE_INTERSECTING) {
+                mTargetFloatingView.setNormal();
+            }
+        }
+    }
+
+    /**
+     * Set the listener of the drop targets.
+     *
+     * @param listener {@link DropTargetListener}
+     */
+    public void setDropTargetListener(final DropTargetListener listener) {
+        if (shouldEnqueue()) {
+            mCommandQueue.enqueue("dropTargetListener", new Runnable() {
+                @Override
+                public void run() {
+                    setDropTargetListener(listener);
+                }
+            });
+            return;
+        }
+        mDropTargetListener = listener;
+    }
+
+    /**
+     * Enable the edge packing.<br/>
+     * If true, each settling FloatingView gets the free position along the edge nearest to its goal,
+     * so the FloatingViews do not stack on top of each other.(Default is false)<br/>
+     * The physics-based animation is not used while moving to the other position.
+     *
+     * @param enabled true if the edge packing is enabled
+     */
+    public void setEdgePackingEnabled(final boolean enabled) {
+        if (shouldEnqueue()) {
+            mCommandQueue.enqueue("edgePackingEnabled", new Runnable() {
+                @Override
+                public void run() {
+                    setEdgePackingEnabled(enabled);
+                }
+            });
+            return;
+        }
+        if (mIsEdgePackingEnabled == enabled) {
+            return;
+        }
+        mIsEdgePackingEnabled = enabled;
+        if (!enabled) {
+            mEdgeSlotAllocator.clear();
+        }
+        for (FloatingView floatingView : mFloatingViewList) {
+            floatingView.setEdgeSlotResolver(enabled ? this : null);
+        }
+    }
+
+    /**
+     * Enable the clustering.<br/>
+     * If true, the FloatingView settled close to the other one is clustered into one group bubble, and its window is released.
+     * The group bubble expands on tap. Disabling the clustering expands all the group bubbles.(Default is false)
+     *
+     * @param enabled true if the clustering is enabled
+     */
+    public void setClusterEnabled(final boolean enabled) {
+        if (shouldEnqueue()) {
+            mCommandQueue.enqueue("clusterEnabled", new Runnable() {
+                @Override
+                public void run() {
+                    setClusterEnabled(enabled);
+                }
+            });
+            return;
+        }
+        if (mIsClusterEnabled == enabled) {
+            return;
+        }
+        mIsClusterEnabled = enabled;
+        if (enabled) {
+            return;
+        }
+        mSettledFloatingViewList.clear();
+        mClusterHandler.removeMessages(ClusterHandler.UPDATE_CLUSTERS);
+        final FloatingView[] floatingViews = mFloatingViewList.toArray(new FloatingView[mFloatingViewList.size()]);
+        for (FloatingView floatingView : floatingViews) {
+            if (mBubbleClusters.isAnchor(floatingView)) {
+                expandCluster(floatingView);
+            }
+        }
+    }
+
+    /**
+     * Set the maximum number of the windows.<br/>
+     * When a FloatingView settles while there are more windows, it is clustered into the nearest one even if it is not close.
+     *
+     * @param threshold maximum number of the windows or {@link #CLUSTER_THRESHOLD_NONE}
+     */
+    public void setClusterThreshold(final int threshold) {
+        if (shouldEnqueue()) {
+            mCommandQueue.enqueue("clusterThreshold", new Runnable() {
+                @Override
+                public void run() {
+                    setClusterThreshold(threshold);
+                }
+            });
+            return;
+        }
+        mClusterThreshold = Math.max(threshold, CLUSTER_THRESHOLD_NONE);
+    }
+
+    /**
+     * Enable the relayout on the background thread.<br/>
+     * If true, the new positions after the rotation are solved for all the FloatingViews at once on the background thread,
+     * and applied in one frame. If the result is not ready in time, the positions are only rescaled on the main thread.(Default is false)
+     *
+     * @param enabled true if the relayout is solved on the background thread
+     */
+    public void setAsyncRelayoutEnabled(final boolean enabled) {
+        if (shouldEnqueue()) {
+            mCommandQueue.enqueue("asyncRelayoutEnabled", new Runnable() {
+                @Override
+                public void run() {
+                    setAsyncRelayoutEnabled(enabled);
+                }
+            });
+            return;
+        }
+        if (mIsAsyncRelayoutEnabled == enabled) {
+            return;
+        }
+        mIsAsyncRelayoutEnabled = enabled;
+        if (enabled) {
+            return;
+        }
+        // the waiting FloatingViews move at once
+        final RelayoutTask task = mRelayoutTask != null ? mRelayoutTask : createRelayoutTask();
+        if (task != null) {
+            mRelayoutGeneration++;
+            applyRelayout(task.floatingViews, RelayoutSolver.solve(task.floatingViews.length, task.positions, task.heights, task.oldLimits, task.newLimits, false));
+        }
+        cancelRelayout();
+    }
+
+    /**
+     * Enable the chain mode.<br/>
+     * If true, the other FloatingViews trail the dragged FloatingView, each lagging the one ahead.(Default is false)
+     *
+     * @param enabled true if the chain mode is enabled
+     */
+    public void setChainModeEnabled(final boolean enabled) {
+        if (shouldEnqueue()) {
+            mCommandQueue.enqueue("chainModeEnabled", new Runnable() {
+                @Override
+                public void run() {
+                    setChainModeEnabled(enabled);
+                }
+            });
+            return;
+        }
+        if (mIsChainModeEnabled == enabled) {
+            return;
+        }
+        mIsChainModeEnabled = enabled;
+        if (enabled) {
+            updateChainMembers(mTargetFloatingView);
+        } else {
+            if (mChainTicker != null) {
+                mChainTicker.cancel();
+            }
+            mBubbleChain.clear();
+        }
+    }
+
+    /**
+     * Set the listener of the overlap between the bubbles.
+     *
+     * @param listener {@link BubbleOverlapListener}
+     */
+    public void setBubbleOverlapListener(final BubbleOverlapListener listener) {
+        if (shouldEnqueue()) {
+            mCommandQueue.enqueue("bubbleOverlapListener", new Runnable() {
+                @Override
+                public void run() {
+                    setBubbleOverlapListener(listener);
+                }
+            });
+            return;
+        }
+        mBubbleOverlapListener = listener;
     }
 
     /**
-     * 固定削除アイコンの画像を設定します。
+     * Find the views overlapping or near the view.<br/>
+     * The bounds are looked up from the spatial index, so this does not scan all the views.
+     * This must be called on the UI thread(the dedicated thread if it is used).
      *
-     * @param resId drawable ID
+     * @param view     view passed to {@link #addViewToWindow(View, Options)}
+     * @param distance distance from the bounds(px). 0 is the overlapping views only
+     * @param outViews list to receive the views(not cleared)
      */
-    public void setFixedTrashIconImage(@DrawableRes int resId) {
-        mTrashView.setFixedTrashIconImage(resId);
+    public void findNearbyViews(@NonNull View view, int distance, @NonNull List<View> outViews) {
+        if (!(view.getParent() instanceof FloatingView)) {
+            return;
+        }
+        final ArrayList<FloatingView> nearbyFloatingViewList = mNearbyFloatingViewList;
+        nearbyFloatingViewList.clear();
+        mBubbleIndex.queryNear((FloatingView) view.getParent(), Math.max(distance, 0), nearbyFloatingViewList);
+        final int size = nearbyFloatingViewList.size();
+        for (int i = 0; i < size; i++) {
+            outViews.add(nearbyFloatingViewList.get(i).getChildAt(0));
+        }
+        nearbyFloatingViewList.clear();
     }
 
     /**
-     * アクションする削除アイコンの画像を設定します。
+     * Release everything that can be rebuilt(trash icons loaded by resource ID, animators and the hidden windows).<br/>
+     * They are rebuilt lazily on the next drag. Forward {@link ComponentCallbacks2#onTrimMemory(int)} of the Service to this method.
+     * Only the memory pressure levels release them(TRIM_MEMORY_RUNNING_LOW or higher, except TRIM_MEMORY_UI_HIDDEN),
+     * and the hidden windows are kept if the release delay is {@link #HIDDEN_WINDOW_RELEASE_NEVER}.
      *
-     * @param resId drawable ID
+     * @param level ComponentCallbacks2.TRIM_MEMORY_XXX
      */
-    public void setActionTrashIconImage(@DrawableRes int resId) {
-        mTrashView.setActionTrashIconImage(resId);
+    public void onTrimMemory(final int level) {
+        if (shouldEnqueue()) {
+            mCommandQueue.enqueue(null, new Runnable() {
+                @Override
+                public void run() {
+                    onTrimMemory(level);
+                }
+            });
+            return;
+        }
+        TrashIconCache.onTrimMemory(level);
+        if (!isMemoryPressure(level)) {
+            return;
+        }
+        mTrashView.onTrimMemory(level);
+        // the hidden windows are released without waiting for the grace period(unless the app has opted out)
+        if (mHiddenWindowReleaseDelay >= 0) {
+            mHiddenWindowHandler.removeMessages(HiddenWindowHandler.RELEASE_HIDDEN_WINDOWS);
+            releaseHiddenWindows();
+        }
     }
 
     /**
-     * 固定削除アイコンを設定します。
+     * Check whether the trim level means memory pressure.<br/>
+     * TRIM_MEMORY_UI_HIDDEN is only sent because the UI of the app has gone to the background.
      *
-     * @param drawable Drawable
+     * @param level ComponentCallbacks2.TRIM_MEMORY_XXX
+     * @return true if the rebuildable resources should be released
      */
-    public void setFixedTrashIconImage(Drawable drawable) {
-        mTrashView.setFixedTrashIconImage(drawable);
+    static boolean isMemoryPressure(int level) {
+        return level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW && level != ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN;
     }
 
     /**
-     * アクション用削除アイコンを設定します。
+     * Set the grace period before the windows of the hidden FloatingViews are released.<br/>
+     * While the FloatingViews are hidden(DISPLAY_MODE_HIDE_ALWAYS or fullscreen), their windows and surfaces are removed after this period,
+     * and they are attached again at the cached positions when they become visible.
      *
-     * @param drawable Drawable
+     * @param delayMillis grace period(ms) or {@link #HIDDEN_WINDOW_RELEASE_NEVER}(default)
      */
-    public void setActionTrashIconImage(Drawable drawable) {
-        mTrashView.setActionTrashIconImage(drawable);
+    public void setHiddenWindowReleaseDelay(final long delayMillis) {
+        if (shouldEnqueue()) {
+            mCommandQueue.enqueue("hiddenWindowReleaseDelay", new Runnable() {
+                @Override
+                public void run() {
+                    setHiddenWindowReleaseDelay(delayMillis);
+                }
+            });
+            return;
+        }
+        mHiddenWindowReleaseDelay = delayMillis;
+        mHiddenWindowHandler.removeMessages(HiddenWindowHandler.RELEASE_HIDDEN_WINDOWS);
+        if (delayMillis < 0) {
+            restoreHiddenWindows();
+        } else if (isAllFloatingViewHidden()) {
+            scheduleHiddenWindowRelease();
+        }
     }
 
     /**
-     * 表示モードを変更します。
+     * Check whether all the FloatingViews are hidden.
      *
-     * @param displayMode {@link #DISPLAY_MODE_SHOW_ALWAYS} or {@link #DISPLAY_MODE_HIDE_ALWAYS} or {@link #DISPLAY_MODE_HIDE_FULLSCREEN}
+     * @return true if all the FloatingViews are hidden
      */
-    public void setDisplayMode(@DisplayMode int displayMode) {
-        mDisplayMode = displayMode;
-        // 常に表示/フルスクリーン時に非表示にするモードの場合
-        if (mDisplayMode == DISPLAY_MODE_SHOW_ALWAYS || mDisplayMode == DISPLAY_MODE_HIDE_FULLSCREEN) {
-            for (FloatingView floatingView : mFloatingViewList) {
-                floatingView.setVisibility(View.VISIBLE);
-            }
+    private boolean isAllFloatingViewHidden() {
+        if (mFloatingViewList.isEmpty()) {
+            return false;
         }
-        // 常に非表示にするモードの場合
-        else if (mDisplayMode == DISPLAY_MODE_HIDE_ALWAYS) {
-            for (FloatingView floatingView : mFloatingViewList) {
-                floatingView.setVisibility(View.GONE);
+        for (FloatingView floatingView : mFloatingViewList) {
+            if (floatingView.getVisibility() == View.VISIBLE) {
+                return false;
             }
-            mTrashView.dismiss();
         }
+        return true;
     }
 
     /**
-     * TrashViewの表示・非表示を設定します。
-     *
-     * @param enabled trueの場合は表示
+     * Release the hidden windows after the grace period.
      */
-    public void setTrashViewEnabled(boolean enabled) {
-        mTrashView.setTrashEnabled(enabled);
+    private void scheduleHiddenWindowRelease() {
+        if (mHiddenWindowReleaseDelay < 0 || mIsHiddenWindowReleased || mHiddenWindowHandler.hasMessages(HiddenWindowHandler.RELEASE_HIDDEN_WINDOWS)) {
+            return;
+        }
+        mHiddenWindowHandler.sendEmptyMessageDelayed(HiddenWindowHandler.RELEASE_HIDDEN_WINDOWS, mHiddenWindowReleaseDelay);
     }
 
     /**
-     * TrashViewの表示非表示状態を取得します。
-     *
-     * @return trueの場合は表示状態（重なり判定が有効の状態）
+     * Remove the windows of the hidden FloatingViews and TrashView.<br/>
+     * The FloatingViews keep their LayoutParams, so they are attached again at the same positions.
      */
-    public boolean isTrashViewEnabled() {
-        return mTrashView.isTrashEnabled();
+    private void releaseHiddenWindows() {
+        if (mIsHiddenWindowReleased || !isAllFloatingViewHidden()) {
+            return;
+        }
+        mIsHiddenWindowReleased = true;
+        for (FloatingView floatingView : mFloatingViewList) {
+            removeViewImmediate(floatingView);
+        }
+        removeViewImmediate(mTrashView);
+    }
+
+    /**
+     * Attach the released windows again(TrashView is attached on top).
+     */
+    private void restoreHiddenWindows() {
+        mHiddenWindowHandler.removeMessages(HiddenWindowHandler.RELEASE_HIDDEN_WINDOWS);
+        if (!mIsHiddenWindowReleased) {
+            return;
+        }
+        mIsHiddenWindowReleased = false;
+        for (FloatingView floatingView : mFloatingViewList) {
+            // the clustered windows stay released
+            if (mBubbleClusters.isMember(floatingView)) {
+                continue;
+            }
+            floatingView.onRestoreWindow();
+            mWindowManager.addView(floatingView, floatingView.getWindowLayoutParams());
+        }
+        mWindowManager.addView(mTrashView, mTrashView.getWindowLayoutParams());
     }
 
     /**
@@ -487,6 +2335,16 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
      * @param safeInsetRect DisplayCutout#getSafeInsetXXX
      */
     public void setSafeInsetRect(Rect safeInsetRect) {
+        if (shouldEnqueue()) {
+            final Rect rect = safeInsetRect == null ? null : new Rect(safeInsetRect);
+            mCommandQueue.enqueue("safeInsetRect", new Runnable() {
+                @Override
+                public void run() {
+                    setSafeInsetRect(rect);
+                }
+            });
+            return;
+        }
         if (safeInsetRect == null) {
             mSafeInsetRect.setEmpty();
         } else {
@@ -513,18 +2371,41 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
      * @param view    フローティングさせるView
      * @param options Options
      */
-    public void addViewToWindow(View view, Options options) {
+    public void addViewToWindow(final View view, final Options options) {
+        if (shouldEnqueue()) {
+            mCommandQueue.enqueue(null, new Runnable() {
+                @Override
+                public void run() {
+                    addViewToWindow(view, options);
+                }
+            });
+            return;
+        }
+        if (deferAddUntilLoaded(view, options)) {
+            return;
+        }
+        // the released windows are attached again to keep the order of the windows
+        restoreHiddenWindows();
         final boolean isFirstAttach = mFloatingViewList.isEmpty();
         // FloatingView
         final FloatingView floatingView = new FloatingView(mContext);
         floatingView.setInitCoords(options.floatingViewX, options.floatingViewY);
+        if (options.bubbleId != null) {
+            restoreLayout(floatingView, options.bubbleId);
+        }
         floatingView.setOnTouchListener(this);
+        floatingView.setWindowLayoutListener(this);
+        floatingView.setEdgeSlotResolver(mIsEdgePackingEnabled ? this : null);
+        floatingView.setRelayoutListener(this);
         floatingView.setShape(options.shape);
         floatingView.setOverMargin(options.overMargin);
         floatingView.setMoveDirection(options.moveDirection);
         floatingView.usePhysics(options.usePhysics);
         floatingView.setAnimateInitialMove(options.animateInitialMove);
+        floatingView.setUseContentSnapshot(options.useContentSnapshot);
+        floatingView.setSurfaceFormat(options.surfaceFormat);
         floatingView.setSafeInsetRect(mSafeInsetRect);
+        floatingView.setQualityTier(mQualityTier);
 
         // set FloatingView size
         final FrameLayout.LayoutParams targetParams = new FrameLayout.LayoutParams(options.floatingViewWidth, options.floatingViewHeight);
@@ -545,11 +2426,109 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
         if (isFirstAttach) {
             mWindowManager.addView(mFullscreenObserverView, mFullscreenObserverView.getWindowLayoutParams());
             mTargetFloatingView = floatingView;
+            if (mIsPowerPolicyEnabled) {
+                mPowerPolicyObserver.start();
+            }
         } else {
             removeViewImmediate(mTrashView);
         }
         // 必ずトップに来て欲しいので毎回貼り付け
         mWindowManager.addView(mTrashView, mTrashView.getWindowLayoutParams());
+        if (mDisplayMode == DISPLAY_MODE_HIDE_ALWAYS) {
+            scheduleHiddenWindowRelease();
+        }
+        updateChainMembers(mTargetFloatingView);
+    }
+
+    /**
+     * Attach the lightweight content(avatar and badge) to the Window.<br/>
+     * The content is drawn in one view without child views.
+     *
+     * @param bubbleContent {@link BubbleContent}
+     * @param options       Options
+     */
+    public void addViewToWindow(final BubbleContent bubbleContent, final Options options) {
+        if (shouldEnqueue()) {
+            mCommandQueue.enqueue(null, new Runnable() {
+                @Override
+                public void run() {
+                    addViewToWindow(bubbleContent, options);
+                }
+            });
+            return;
+        }
+        addViewToWindow(new BubbleContentView(mContext, bubbleContent, options.shape), options);
+    }
+
+    /**
+     * Remove the window of the lightweight content.<br/>
+     * The other bubbles stay on the screen: a group bubble is expanded first, and a member only leaves its cluster.
+     *
+     * @param bubbleContent {@link BubbleContent}
+     */
+    void removeViewToWindow(final BubbleContent bubbleContent) {
+        if (shouldEnqueue()) {
+            mCommandQueue.enqueue(null, new Runnable() {
+                @Override
+                public void run() {
+                    removeViewToWindow(bubbleContent);
+                }
+            });
+            return;
+        }
+        final FloatingView floatingView = findFloatingView(bubbleContent);
+        if (floatingView == null) {
+            return;
+        }
+        final FloatingView anchor = mBubbleClusters.removeMember(floatingView);
+        if (anchor != null) {
+            anchor.setClusterCount(mBubbleClusters.getMemberCount(anchor));
+        } else if (mBubbleClusters.isAnchor(floatingView)) {
+            expandCluster(floatingView);
+        }
+        removeViewToWindow(floatingView);
+    }
+
+    /**
+     * Set the listener of the lightweight contents(used by {@link LocalFloatingViewHost}).
+     *
+     * @param listener {@link BubbleContentListener}
+     */
+    void setBubbleContentListener(BubbleContentListener listener) {
+        mBubbleContentListener = listener;
+    }
+
+    /**
+     * Get the lightweight content of the FloatingView being touched.
+     *
+     * @return {@link BubbleContent}(null if the touched FloatingView is not a lightweight content)
+     */
+    @Nullable
+    private BubbleContent getTouchedBubbleContent() {
+        if (mTargetFloatingView == null) {
+            return null;
+        }
+        final View view = mTargetFloatingView.getChildAt(0);
+        return view instanceof BubbleContentView ? ((BubbleContentView) view).getBubbleContent() : null;
+    }
+
+    /**
+     * Find the FloatingView drawing the lightweight content.
+     *
+     * @param bubbleContent {@link BubbleContent}
+     * @return FloatingView(null if not found)
+     */
+    @Nullable
+    private FloatingView findFloatingView(BubbleContent bubbleContent) {
+        final int size = mFloatingViewList.size();
+        for (int i = 0; i < size; i++) {
+            final FloatingView floatingView = mFloatingViewList.get(i);
+            final View view = floatingView.getChildAt(0);
+            if (view instanceof BubbleContentView && ((BubbleContentView) view).getBubbleContent() == bubbleContent) {
+                return floatingView;
+            }
+        }
+        return null;
     }
 
     /**
@@ -563,13 +2542,41 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
         if (matchIndex != -1) {
             removeViewImmediate(floatingView);
             mFloatingViewList.remove(matchIndex);
+            mBubbleIndex.remove(floatingView);
+            mEdgeSlotAllocator.release(floatingView);
+            if (mOverlappedFloatingView == floatingView) {
+                mOverlappedFloatingView = null;
+            }
+            mSettledFloatingViewList.remove(floatingView);
+            mRelayoutFloatingViewList.remove(floatingView);
+            mRelayoutOldLimitMap.remove(floatingView);
+            mBubbleIdMap.remove(floatingView);
+            // the members of the group bubble are removed together
+            for (FloatingView member : mBubbleClusters.removeAnchor(floatingView)) {
+                removeViewImmediate(member);
+                mFloatingViewList.remove(member);
+                mEdgeSlotAllocator.release(member);
+                mSettledFloatingViewList.remove(member);
+                mBubbleIdMap.remove(member);
+            }
+            if (!mFloatingViewList.isEmpty()) {
+                updateChainMembers(mBubbleChain.isLeader(floatingView) ? mFloatingViewList.get(0) : mTargetFloatingView);
+            }
         }
 
         // 残りのViewをチェック
         if (mFloatingViewList.isEmpty()) {
             // 終了を通知
+            if (mBubbleContentListener != null) {
+                mBubbleContentListener.onAllBubblesRemoved();
+            }
             if (mFloatingViewListener != null) {
-                mFloatingViewListener.onFinishFloatingView();
+                mListenerDispatcher.dispatch(new Runnable() {
+                    @Override
+                    public void run() {
+                        mFloatingViewListener.onFinishFloatingView();
+                    }
+                });
             }
         }
     }
@@ -578,6 +2585,44 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
      * ViewをWindowから全て取り外します。
      */
     public void removeAllViewToWindow() {
+        if (shouldEnqueue()) {
+            mCommandQueue.enqueue(null, new Runnable() {
+                @Override
+                public void run() {
+                    removeAllViewToWindow();
+                }
+            });
+            return;
+        }
+        if (mTrashIntersectionTicker != null) {
+            mTrashIntersectionTicker.cancel();
+        }
+        if (mChainTicker != null) {
+            mChainTicker.cancel();
+        }
+        mBubbleChain.clear();
+        mHiddenWindowHandler.removeMessages(HiddenWindowHandler.RELEASE_HIDDEN_WINDOWS);
+        mIsHiddenWindowReleased = false;
+        mCapturedDropTarget = null;
+        mOverlappedFloatingView = null;
+        mBubbleIndex.clear();
+        mEdgeSlotAllocator.clear();
+        mBubbleClusters.clear();
+        mSettledFloatingViewList.clear();
+        mClusterHandler.removeMessages(ClusterHandler.UPDATE_CLUSTERS);
+        mBubbleIdMap.clear();
+        mPendingAddList.clear();
+        if (mPositionStore != null) {
+            mPositionStore.flush();
+        }
+        cancelRelayout();
+        quitRelayoutThread();
+        if (mQualityGovernor != null) {
+            mQualityGovernor.reset();
+        }
+        mPowerPolicyObserver.stop();
+        mIsLowPower = false;
+        updateQualityTier();
         removeViewImmediate(mFullscreenObserverView);
         removeViewImmediate(mTrashView);
         // FloatingViewの削除
@@ -589,6 +2634,39 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
         mFloatingViewList.clear();
     }
 
+    /**
+     * Remove all the views and quit the dedicated thread.<br/>
+     * The FloatingViewManager can not be used after this call if it uses the dedicated thread.
+     */
+    public void release() {
+        if (mUiThread == null) {
+            removeAllViewToWindow();
+            return;
+        }
+        mCommandQueue.enqueue(null, new Runnable() {
+            @Override
+            public void run() {
+                removeAllViewToWindow();
+                mCommandQueue.clear();
+                mUiThread.quit();
+            }
+        });
+    }
+
+    /**
+     * Check whether the call must be queued.<br/>
+     * On the UI thread, the queued commands are applied first to keep the order of the calls.
+     *
+     * @return true if the call is not on the UI thread
+     */
+    private boolean shouldEnqueue() {
+        if (Looper.myLooper() != mUiHandler.getLooper()) {
+            return true;
+        }
+        mCommandQueue.drain();
+        return false;
+    }
+
     /**
      * Safely remove the View (issue #89)
      *
@@ -632,6 +2710,229 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
         return safeInsetRect;
     }
 
+    /**
+     * Handler to release the windows of the hidden FloatingViews after the grace period.
+     */
+    static class HiddenWindowHandler extends Handler {
+
+        /**
+         * Release the hidden windows
+         */
+        private static final int RELEASE_HIDDEN_WINDOWS = 0;
+
+        /**
+         * FloatingViewManager
+         */
+        private final WeakReference<FloatingViewManager> mFloatingViewManager;
+
+        /**
+         * Constructor
+         *
+         * @param floatingViewManager FloatingViewManager
+         * @param looper              Looper of the UI thread
+         */
+        HiddenWindowHandler(FloatingViewManager floatingViewManager, Looper looper) {
+            super(looper);
+            mFloatingViewManager = new WeakReference<>(floatingViewManager);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void handleMessage(Message msg) {
+            final FloatingViewManager floatingViewManager = mFloatingViewManager.get();
+            if (floatingViewManager == null) {
+                removeMessages(RELEASE_HIDDEN_WINDOWS);
+                return;
+            }
+            floatingViewManager.releaseHiddenWindows();
+        }
+    }
+
+    /**
+     * Handler to update the clusters after the layout pass.
+     */
+    static class ClusterHandler extends Handler {
+
+        /**
+         * Update the clusters
+         */
+        private static final int UPDATE_CLUSTERS = 0;
+
+        /**
+         * FloatingViewManager
+         */
+        private final WeakReference<FloatingViewManager> mFloatingViewManager;
+
+        /**
+         * Constructor
+         *
+         * @param floatingViewManager FloatingViewManager
+         * @param looper              Looper of the UI thread
+         */
+        ClusterHandler(FloatingViewManager floatingViewManager, Looper looper) {
+            super(looper);
+            mFloatingViewManager = new WeakReference<>(floatingViewManager);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void handleMessage(Message msg) {
+            final FloatingViewManager floatingViewManager = mFloatingViewManager.get();
+            if (floatingViewManager == null) {
+                removeMessages(UPDATE_CLUSTERS);
+                return;
+            }
+            floatingViewManager.updateClusters();
+        }
+    }
+
+    /**
+     * Relayout solved on the background thread.<br/>
+     * The input is a snapshot, so the task does not touch the views.
+     */
+    static class RelayoutTask implements Runnable {
+
+        /**
+         * Handler to receive the result
+         */
+        private final RelayoutHandler mHandler;
+
+        /**
+         * Generation of the relayout
+         */
+        final int generation;
+
+        /**
+         * FloatingViews(only used on the main thread)
+         */
+        final FloatingView[] floatingViews;
+
+        /**
+         * Positions(x0, y0, x1, y1, ...)
+         */
+        final int[] positions;
+
+        /**
+         * Heights
+         */
+        final int[] heights;
+
+        /**
+         * Old position limit rects
+         */
+        final int[] oldLimits;
+
+        /**
+         * New position limit rects
+         */
+        final int[] newLimits;
+
+        /**
+         * True if the edge packing is enabled
+         */
+        final boolean isEdgePacked;
+
+        /**
+         * Solved positions(set on the background thread)
+         */
+        volatile int[] goals;
+
+        /**
+         * Constructor
+         *
+         * @param handler       handler to receive the result
+         * @param generation    generation of the relayout
+         * @param floatingViews FloatingViews
+         * @param positions     positions
+         * @param heights       heights
+         * @param oldLimits     old position limit rects
+         * @param newLimits     new position limit rects
+         * @param isEdgePacked  true if the edge packing is enabled
+         */
+        RelayoutTask(RelayoutHandler handler, int generation, FloatingView[] floatingViews, int[] positions, int[] heights,
+                     int[] oldLimits, int[] newLimits, boolean isEdgePacked) {
+            mHandler = handler;
+            this.generation = generation;
+            this.floatingViews = floatingViews;
+            this.positions = positions;
+            this.heights = heights;
+            this.oldLimits = oldLimits;
+            this.newLimits = newLimits;
+            this.isEdgePacked = isEdgePacked;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run() {
+            goals = RelayoutSolver.solve(floatingViews.length, positions, heights, oldLimits, newLimits, isEdgePacked);
+            mHandler.sendMessage(mHandler.obtainMessage(RelayoutHandler.SOLVED, this));
+        }
+    }
+
+    /**
+     * Handler of the relayout.
+     */
+    static class RelayoutHandler extends Handler {
+
+        /**
+         * Solve the requested relayout
+         */
+        private static final int SOLVE = 0;
+
+        /**
+         * The relayout has been solved
+         */
+        private static final int SOLVED = 1;
+
+        /**
+         * The relayout has not been solved in time
+         */
+        private static final int TIMEOUT = 2;
+
+        /**
+         * FloatingViewManager
+         */
+        private final WeakReference<FloatingViewManager> mFloatingViewManager;
+
+        /**
+         * Constructor
+         *
+         * @param floatingViewManager FloatingViewManager
+         * @param looper              Looper of the UI thread
+         */
+        RelayoutHandler(FloatingViewManager floatingViewManager, Looper looper) {
+            super(looper);
+            mFloatingViewManager = new WeakReference<>(floatingViewManager);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void handleMessage(Message msg) {
+            final FloatingViewManager floatingViewManager = mFloatingViewManager.get();
+            if (floatingViewManager == null) {
+                removeMessages(SOLVE);
+                removeMessages(SOLVED);
+                removeMessages(TIMEOUT);
+                return;
+            }
+            if (msg.what == SOLVE) {
+                floatingViewManager.startRelayout();
+            } else if (msg.what == SOLVED) {
+                floatingViewManager.onRelayoutSolved((RelayoutTask) msg.obj);
+            } else if (msg.what == TIMEOUT) {
+                floatingViewManager.onRelayoutTimeout(msg.arg1);
+            }
+        }
+    }
+
     /**
      * FloatingViewを貼り付ける際のオプションを表すクラスです。
      */
@@ -684,6 +2985,29 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
          */
         public boolean animateInitialMove;
 
+        /**
+         * Cache the content in a hardware layer while the FloatingView is dragged or moving to the edge(default false).
+         * The layer is re-rendered by the GPU whenever the content invalidates itself, and released when the FloatingView settles.
+         * It has no effect if the window is not hardware accelerated.
+         */
+        public boolean useContentSnapshot;
+
+        /**
+         * Surface format of the FloatingView(default SURFACE_FORMAT_TRANSLUCENT)
+         * Use SURFACE_FORMAT_OPAQUE or SURFACE_FORMAT_RGB_565 only for opaque content filling the whole FloatingView(e.g. SHAPE_RECTANGLE with an opaque background).
+         * The opaque surface does not scale down while pressed, because the uncovered area would not be transparent.
+         */
+        @SurfaceFormat
+        public int surfaceFormat;
+
+        /**
+         * ID to save the last layout of the FloatingView(default null: not saved)
+         * The position and the size are saved for each orientation when the FloatingView settles, and the saved position overrides floatingViewX/floatingViewY.
+         * After the service has been recreated, the FloatingView appears at the saved position on the first frame, and the initial move is skipped if the size has not changed.
+         * The saved layouts are loaded in the background, so the window is attached after the load for the first time in the process.
+         */
+        public String bubbleId;
+
         /**
          * オプションのデフォルト値を設定します。
          */
@@ -697,6 +3021,9 @@ public class FloatingViewManager implements ScreenChangedListener, View.OnTouchL
             moveDirection = MOVE_DIRECTION_DEFAULT;
             usePhysics = true;
             animateInitialMove = true;
+            useContentSnapshot = false;
+            surfaceFormat = SURFACE_FORMAT_TRANSLUCENT;
+            bubbleId = null;
         }
 
     }
@@ -0,0 +1,278 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.os.Build;
+import android.view.Choreographer;
+import android.view.WindowManager;
+
+import androidx.annotation.RequiresApi;
+
+/**
+ * Measures frame overruns while the FloatingView is animating and switches the quality tier.
+ * INFO:Degrading and recovering use different thresholds and window counts(hysteresis), so the tier does not flap.
+ */
+@RequiresApi(Build.VERSION_CODES.JELLY_BEAN)
+class FrameQualityGovernor implements Choreographer.FrameCallback {
+
+    /**
+     * Number of frames in one measurement window
+     */
+    private static final int WINDOW_FRAMES = 30;
+
+    /**
+     * A frame is late when its interval exceeds the expected interval by this factor
+     */
+    private static final float LATE_FRAME_FACTOR = 1.5f;
+
+    /**
+     * Ratio of late frames to degrade the tier
+     */
+    private static final float DEGRADE_LATE_RATIO = 0.25f;
+
+    /**
+     * Ratio of late frames to recover the tier
+     */
+    private static final float RECOVER_LATE_RATIO = 0.05f;
+
+    /**
+     * Number of consecutive bad windows to degrade the tier
+     */
+    private static final int DEGRADE_WINDOWS = 2;
+
+    /**
+     * Number of consecutive good windows to recover the tier
+     */
+    private static final int RECOVER_WINDOWS = 6;
+
+    /**
+     * Time to keep measuring after the touch has finished(snap animation)
+     */
+    private static final long SETTLE_DURATION_NANOS = 600_000_000L;
+
+    /**
+     * Default refresh rate(Hz)
+     */
+    private static final float DEFAULT_REFRESH_RATE = 60.0f;
+
+    /**
+     * QualityTierListener
+     */
+    private final QualityTierListener mQualityTierListener;
+
+    /**
+     * WindowManager
+     */
+    private final WindowManager mWindowManager;
+
+    /**
+     * Expected frame interval(ns)
+     */
+    private long mFrameIntervalNanos;
+
+    /**
+     * Current quality tier
+     */
+    @FloatingViewManager.QualityTier
+    private int mQualityTier;
+
+    /**
+     * Frame time of the previous frame(0 is none)
+     */
+    private long mLastFrameTimeNanos;
+
+    /**
+     * Frame time to stop measuring(0 is measuring until stopped)
+     */
+    private long mStopFrameTimeNanos;
+
+    /**
+     * Number of frames in the current window
+     */
+    private int mWindowFrameCount;
+
+    /**
+     * Number of late frames in the current window
+     */
+    private int mWindowLateFrameCount;
+
+    /**
+     * Number of consecutive bad windows
+     */
+    private int mBadWindowCount;
+
+    /**
+     * Number of consecutive good windows
+     */
+    private int mGoodWindowCount;
+
+    /**
+     * Measuring flag
+     */
+    private boolean mIsRunning;
+
+    /**
+     * Stop request flag
+     */
+    private boolean mIsStopRequested;
+
+    /**
+     * Constructor
+     *
+     * @param windowManager WindowManager
+     * @param listener      QualityTierListener
+     */
+    FrameQualityGovernor(WindowManager windowManager, QualityTierListener listener) {
+        mWindowManager = windowManager;
+        mQualityTierListener = listener;
+        mQualityTier = FloatingViewManager.QUALITY_TIER_HIGH;
+    }
+
+    /**
+     * Start measuring.
+     */
+    void start() {
+        mIsStopRequested = false;
+        mStopFrameTimeNanos = 0;
+        if (mIsRunning) {
+            return;
+        }
+        float refreshRate = mWindowManager.getDefaultDisplay().getRefreshRate();
+        if (refreshRate < 1.0f) {
+            refreshRate = DEFAULT_REFRESH_RATE;
+        }
+        mFrameIntervalNanos = (long) (1_000_000_000L / refreshRate);
+        mLastFrameTimeNanos = 0;
+        mIsRunning = true;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * Stop measuring after the snap animation.
+     */
+    void stop() {
+        if (mIsRunning) {
+            mIsStopRequested = true;
+        }
+    }
+
+    /**
+     * Stop measuring immediately and reset the tier.
+     */
+    void reset() {
+        if (mIsRunning) {
+            Choreographer.getInstance().removeFrameCallback(this);
+            mIsRunning = false;
+        }
+        resetWindow();
+        mBadWindowCount = 0;
+        mGoodWindowCount = 0;
+        setQualityTier(FloatingViewManager.QUALITY_TIER_HIGH);
+    }
+
+    /**
+     * Get the current quality tier.
+     *
+     * @return QUALITY_TIER_XXX
+     */
+    @FloatingViewManager.QualityTier
+    int getQualityTier() {
+        return mQualityTier;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mIsRunning) {
+            return;
+        }
+
+        if (mIsStopRequested) {
+            mIsStopRequested = false;
+            mStopFrameTimeNanos = frameTimeNanos + SETTLE_DURATION_NANOS;
+        }
+
+        if (mLastFrameTimeNanos != 0) {
+            final long frameInterval = frameTimeNanos - mLastFrameTimeNanos;
+            mWindowFrameCount++;
+            if (frameInterval > mFrameIntervalNanos * LATE_FRAME_FACTOR) {
+                mWindowLateFrameCount++;
+            }
+            if (mWindowFrameCount >= WINDOW_FRAMES) {
+                evaluateWindow();
+            }
+        }
+        mLastFrameTimeNanos = frameTimeNanos;
+
+        // stop after the settle duration
+        if (mStopFrameTimeNanos != 0 && frameTimeNanos >= mStopFrameTimeNanos) {
+            mIsRunning = false;
+            resetWindow();
+            return;
+        }
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * Evaluate the late frame ratio of the current window and update the tier.
+     */
+    private void evaluateWindow() {
+        final float lateRatio = mWindowLateFrameCount / (float) mWindowFrameCount;
+        resetWindow();
+
+        if (lateRatio >= DEGRADE_LATE_RATIO) {
+            mGoodWindowCount = 0;
+            mBadWindowCount++;
+            if (mBadWindowCount >= DEGRADE_WINDOWS && mQualityTier < FloatingViewManager.QUALITY_TIER_LOW) {
+                mBadWindowCount = 0;
+                setQualityTier(mQualityTier + 1);
+            }
+        } else if (lateRatio <= RECOVER_LATE_RATIO) {
+            mBadWindowCount = 0;
+            mGoodWindowCount++;
+            if (mGoodWindowCount >= RECOVER_WINDOWS && mQualityTier > FloatingViewManager.QUALITY_TIER_HIGH) {
+                mGoodWindowCount = 0;
+                setQualityTier(mQualityTier - 1);
+            }
+        }
+    }
+
+    /**
+     * Reset the current window.
+     */
+    private void resetWindow() {
+        mWindowFrameCount = 0;
+        mWindowLateFrameCount = 0;
+    }
+
+    /**
+     * Change the tier and notify the listener.
+     *
+     * @param qualityTier QUALITY_TIER_XXX
+     */
+    private void setQualityTier(@FloatingViewManager.QualityTier int qualityTier) {
+        if (mQualityTier == qualityTier) {
+            return;
+        }
+        mQualityTier = qualityTier;
+        if (mQualityTierListener != null) {
+            mQualityTierListener.onQualityTierChanged(qualityTier);
+        }
+    }
+}
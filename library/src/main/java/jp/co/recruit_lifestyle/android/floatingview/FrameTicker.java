@@ -0,0 +1,91 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.os.Build;
+import android.view.Choreographer;
+
+import androidx.annotation.RequiresApi;
+
+/**
+ * Runs a task at most once per frame.<br/>
+ * Requests from the touch events(which may arrive at 240Hz or more) are coalesced into the next frame.
+ */
+@RequiresApi(Build.VERSION_CODES.JELLY_BEAN)
+class FrameTicker implements Choreographer.FrameCallback {
+
+    /**
+     * Task to run on the frame
+     */
+    private final Runnable mTask;
+
+    /**
+     * True if the frame callback has been posted
+     */
+    private boolean mIsRequested;
+
+    /**
+     * Constructor
+     *
+     * @param task task to run on the frame
+     */
+    FrameTicker(Runnable task) {
+        mTask = task;
+    }
+
+    /**
+     * Run the task on the next frame(only once for all the requests before the frame).
+     */
+    void requestFrame() {
+        if (mIsRequested) {
+            return;
+        }
+        mIsRequested = true;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * Run the requested task immediately.
+     */
+    void flush() {
+        if (!mIsRequested) {
+            return;
+        }
+        cancel();
+        mTask.run();
+    }
+
+    /**
+     * Cancel the requested task.
+     */
+    void cancel() {
+        if (!mIsRequested) {
+            return;
+        }
+        mIsRequested = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mIsRequested = false;
+        mTask.run();
+    }
+}
@@ -0,0 +1,271 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Bundle;
+import android.os.Message;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Messages between {@link RemoteFloatingViewHost} and {@link FloatingViewHostService}.<br/>
+ * The ints are passed in arg1/arg2, and only the ID, the avatar and the options use the Bundle.
+ * The avatar is sent as PNG bytes scaled to the displayed size(and at most MAX_AVATAR_SIZE), not as a parcelled Bitmap.
+ */
+final class HostProtocol {
+
+    /**
+     * Maximum width and height of the sent avatar(px)
+     */
+    static final int MAX_AVATAR_SIZE = 256;
+
+    /**
+     * Maximum size of the encoded avatar(bytes, well below the binder transaction buffer)
+     */
+    static final int MAX_AVATAR_DATA_SIZE = 256 * 1024;
+
+    /**
+     * Register the client(replyTo receives the events)
+     */
+    static final int MSG_REGISTER_CLIENT = 1;
+
+    /**
+     * Add the bubble(arg1: badge count)
+     */
+    static final int MSG_ADD_BUBBLE = 2;
+
+    /**
+     * Set the avatar
+     */
+    static final int MSG_SET_AVATAR = 3;
+
+    /**
+     * Set the badge count(arg1: badge count)
+     */
+    static final int MSG_SET_BADGE_COUNT = 4;
+
+    /**
+     * Remove the bubble
+     */
+    static final int MSG_REMOVE_BUBBLE = 5;
+
+    /**
+     * Remove all the bubbles
+     */
+    static final int MSG_REMOVE_ALL_BUBBLES = 6;
+
+    /**
+     * The bubble has been moved(arg1: x, arg2: y)
+     */
+    static final int MSG_BUBBLE_MOVED = 101;
+
+    /**
+     * The bubble has been deleted
+     */
+    static final int MSG_BUBBLE_REMOVED = 102;
+
+    /**
+     * All the bubbles have been deleted
+     */
+    static final int MSG_FINISH_FLOATING_VIEW = 103;
+
+    /**
+     * Key of the ID
+     */
+    private static final String KEY_ID = "id";
+
+    /**
+     * Key of the avatar
+     */
+    private static final String KEY_AVATAR = "avatar";
+
+    /**
+     * Key of the shape
+     */
+    private static final String KEY_SHAPE = "shape";
+
+    /**
+     * Key of the int options(overMargin, x, y, width, height, moveDirection, surfaceFormat)
+     */
+    private static final String KEY_INT_OPTIONS = "intOptions";
+
+    /**
+     * Key of the boolean options(usePhysics, animateInitialMove, useContentSnapshot)
+     */
+    private static final String KEY_BOOLEAN_OPTIONS = "booleanOptions";
+
+    /**
+     * Key of the bubble ID of the options
+     */
+    private static final String KEY_BUBBLE_ID = "bubbleId";
+
+    /**
+     * Not instantiable
+     */
+    private HostProtocol() {
+    }
+
+    /**
+     * Obtain the message of the bubble.
+     *
+     * @param what MSG_XXX
+     * @param id   ID of the bubble(null if the message is not for a bubble)
+     * @param arg1 arg1
+     * @param arg2 arg2
+     * @return Message
+     */
+    static Message obtain(int what, String id, int arg1, int arg2) {
+        final Message message = Message.obtain(null, what, arg1, arg2);
+        if (id != null) {
+            final Bundle data = new Bundle();
+            data.putString(KEY_ID, id);
+            message.setData(data);
+        }
+        return message;
+    }
+
+    /**
+     * Get the ID of the bubble.
+     *
+     * @param message Message
+     * @return ID of the bubble(null if none)
+     */
+    static String getId(Message message) {
+        return message.peekData() == null ? null : message.peekData().getString(KEY_ID);
+    }
+
+    /**
+     * Encode the avatar to PNG bytes.<br/>
+     * The avatar is center cropped to the view, so it is scaled down until it just covers the displayed size(never scaled up).
+     * In every case it is scaled down to fit in MAX_AVATAR_SIZE.
+     *
+     * @param avatar avatar bitmap(nullable)
+     * @param width  displayed width(px). 0 or less if the view is the size of the avatar
+     * @param height displayed height(px). 0 or less if the view is the size of the avatar
+     * @return PNG bytes(null if no avatar)
+     * @throws IllegalArgumentException if the encoded avatar is larger than MAX_AVATAR_DATA_SIZE
+     */
+    static byte[] encodeAvatar(Bitmap avatar, int width, int height) {
+        if (avatar == null) {
+            return null;
+        }
+        final int avatarWidth = avatar.getWidth();
+        final int avatarHeight = avatar.getHeight();
+        float scale = MAX_AVATAR_SIZE / (float) Math.max(avatarWidth, avatarHeight);
+        if (width > 0 && height > 0) {
+            scale = Math.min(scale, Math.max(width / (float) avatarWidth, height / (float) avatarHeight));
+        }
+        Bitmap scaledAvatar = avatar;
+        if (scale < 1.0f) {
+            scaledAvatar = Bitmap.createScaledBitmap(avatar,
+                    Math.max(Math.round(avatarWidth * scale), 1), Math.max(Math.round(avatarHeight * scale), 1), true);
+        }
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        scaledAvatar.compress(Bitmap.CompressFormat.PNG, 100, outputStream);
+        if (scaledAvatar != avatar) {
+            scaledAvatar.recycle();
+        }
+        if (outputStream.size() > MAX_AVATAR_DATA_SIZE) {
+            throw new IllegalArgumentException("The avatar is too large to send(" + outputStream.size() + " bytes)");
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Put the avatar.
+     *
+     * @param message    Message
+     * @param avatarData PNG bytes of the avatar(see encodeAvatar)
+     */
+    static void putAvatar(Message message, byte[] avatarData) {
+        message.getData().putByteArray(KEY_AVATAR, avatarData);
+    }
+
+    /**
+     * Get the avatar.
+     *
+     * @param message Message
+     * @return avatar bitmap(null if none)
+     */
+    static Bitmap getAvatar(Message message) {
+        final byte[] avatarData = message.peekData() == null ? null : message.peekData().getByteArray(KEY_AVATAR);
+        return avatarData == null ? null : BitmapFactory.decodeByteArray(avatarData, 0, avatarData.length);
+    }
+
+    /**
+     * Create the data of the options(a copy that is not changed by the caller).
+     *
+     * @param options Options
+     * @return data of the options
+     */
+    static Bundle createOptionsData(FloatingViewManager.Options options) {
+        final Bundle data = new Bundle();
+        data.putFloat(KEY_SHAPE, options.shape);
+        data.putIntArray(KEY_INT_OPTIONS, new int[]{options.overMargin, options.floatingViewX, options.floatingViewY,
+                options.floatingViewWidth, options.floatingViewHeight, options.moveDirection, options.surfaceFormat});
+        data.putBooleanArray(KEY_BOOLEAN_OPTIONS, new boolean[]{options.usePhysics, options.animateInitialMove, options.useContentSnapshot});
+        data.putString(KEY_BUBBLE_ID, options.bubbleId);
+        return data;
+    }
+
+    /**
+     * Put the options.
+     *
+     * @param message     Message
+     * @param optionsData data of the options(see createOptionsData)
+     */
+    static void putOptions(Message message, Bundle optionsData) {
+        message.getData().putAll(optionsData);
+    }
+
+    /**
+     * Get the options.
+     *
+     * @param message Message
+     * @return Options(the default options if none)
+     */
+    static FloatingViewManager.Options getOptions(Message message) {
+        final FloatingViewManager.Options options = new FloatingViewManager.Options();
+        final Bundle data = message.peekData();
+        if (data == null) {
+            return options;
+        }
+        options.shape = data.getFloat(KEY_SHAPE, options.shape);
+        final int[] intOptions = data.getIntArray(KEY_INT_OPTIONS);
+        if (intOptions != null) {
+            options.overMargin = intOptions[0];
+            options.floatingViewX = intOptions[1];
+            options.floatingViewY = intOptions[2];
+            options.floatingViewWidth = intOptions[3];
+            options.floatingViewHeight = intOptions[4];
+            //noinspection WrongConstant
+            options.moveDirection = intOptions[5];
+            //noinspection WrongConstant
+            options.surfaceFormat = intOptions[6];
+        }
+        final boolean[] booleanOptions = data.getBooleanArray(KEY_BOOLEAN_OPTIONS);
+        if (booleanOptions != null) {
+            options.usePhysics = booleanOptions[0];
+            options.animateInitialMove = booleanOptions[1];
+            options.useContentSnapshot = booleanOptions[2];
+        }
+        options.bubbleId = data.getString(KEY_BUBBLE_ID);
+        return options;
+    }
+}
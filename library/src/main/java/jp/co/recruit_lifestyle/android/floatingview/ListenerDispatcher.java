@@ -0,0 +1,140 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.os.Build;
+import android.os.Handler;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * Dispatches the callbacks of the listeners out of the touch path.<br/>
+ * See {@link FloatingViewManager#setListenerDispatchMode(int)}.
+ */
+class ListenerDispatcher {
+
+    /**
+     * Handler of the UI thread
+     */
+    private final Handler mHandler;
+
+    /**
+     * Ticker to run the callbacks on the next frame(null before API 16)
+     */
+    private final FrameTicker mFrameTicker;
+
+    /**
+     * Callbacks waiting for the next frame
+     */
+    private final ArrayList<Runnable> mFrameCallbackList;
+
+    /**
+     * Callbacks being run on the frame
+     */
+    private final ArrayList<Runnable> mRunningCallbackList;
+
+    /**
+     * Dispatch mode
+     */
+    @FloatingViewManager.ListenerDispatchMode
+    private int mDispatchMode;
+
+    /**
+     * Executor of LISTENER_DISPATCH_EXECUTOR
+     */
+    private Executor mExecutor;
+
+    /**
+     * Constructor
+     *
+     * @param handler Handler of the UI thread
+     */
+    ListenerDispatcher(Handler handler) {
+        mHandler = handler;
+        mFrameCallbackList = new ArrayList<>();
+        mRunningCallbackList = new ArrayList<>();
+        mDispatchMode = FloatingViewManager.LISTENER_DISPATCH_INLINE;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mFrameTicker = new FrameTicker(new Runnable() {
+                @Override
+                public void run() {
+                    runFrameCallbacks();
+                }
+            });
+        } else {
+            mFrameTicker = null;
+        }
+    }
+
+    /**
+     * Set the dispatch mode.<br/>
+     * The callbacks waiting for the next frame are run first.
+     *
+     * @param dispatchMode LISTENER_DISPATCH_XXX
+     */
+    void setDispatchMode(@FloatingViewManager.ListenerDispatchMode int dispatchMode) {
+        if (mFrameTicker != null) {
+            mFrameTicker.flush();
+        }
+        mDispatchMode = dispatchMode;
+    }
+
+    /**
+     * Set the executor of LISTENER_DISPATCH_EXECUTOR.
+     *
+     * @param executor Executor(null to run the callbacks on the next frame)
+     */
+    void setExecutor(Executor executor) {
+        mExecutor = executor;
+    }
+
+    /**
+     * Dispatch the callback(UI thread only).
+     *
+     * @param callback callback of the listener
+     */
+    void dispatch(Runnable callback) {
+        if (mDispatchMode == FloatingViewManager.LISTENER_DISPATCH_INLINE) {
+            callback.run();
+        } else if (mDispatchMode == FloatingViewManager.LISTENER_DISPATCH_EXECUTOR && mExecutor != null) {
+            mExecutor.execute(callback);
+        } else if (mFrameTicker != null) {
+            mFrameCallbackList.add(callback);
+            mFrameTicker.requestFrame();
+        } else {
+            mHandler.post(callback);
+        }
+    }
+
+    /**
+     * Run the callbacks waiting for the next frame.<br/>
+     * The callbacks dispatched from these callbacks wait for the following frame.
+     */
+    private void runFrameCallbacks() {
+        mRunningCallbackList.addAll(mFrameCallbackList);
+        mFrameCallbackList.clear();
+        final int size = mRunningCallbackList.size();
+        try {
+            for (int i = 0; i < size; i++) {
+                mRunningCallbackList.get(i).run();
+            }
+        } finally {
+            mRunningCallbackList.clear();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+
+/**
+ * {@link FloatingViewHost} drawing the bubbles in this process.<br/>
+ * Used by {@link FloatingViewHostService} in the host process, and usable as an in-process stand-in of {@link RemoteFloatingViewHost}.
+ */
+public class LocalFloatingViewHost implements FloatingViewHost, BubbleContentListener {
+
+    /**
+     * FloatingViewManager
+     */
+    private final FloatingViewManager mFloatingViewManager;
+
+    /**
+     * BubbleContent of each ID
+     */
+    private final HashMap<String, BubbleContent> mBubbleContentMap;
+
+    /**
+     * ID of each BubbleContent
+     */
+    private final HashMap<BubbleContent, String> mIdMap;
+
+    /**
+     * FloatingViewHostListener
+     */
+    private FloatingViewHostListener mFloatingViewHostListener;
+
+    /**
+     * True while the bubbles are removed by this host(not reported as finished)
+     */
+    private boolean mIsRemovingBubbles;
+
+    /**
+     * Constructor
+     *
+     * @param context Context
+     */
+    public LocalFloatingViewHost(Context context) {
+        mFloatingViewManager = new FloatingViewManager(context, null);
+        mFloatingViewManager.setBubbleContentListener(this);
+        mBubbleContentMap = new HashMap<>();
+        mIdMap = new HashMap<>();
+    }
+
+    /**
+     * Get the FloatingViewManager drawing the bubbles(e.g. to set the trash icons or the display mode).<br/>
+     * The {@link FloatingViewHostListener} is called at the time of the event, regardless of the listener dispatch mode.
+     *
+     * @return FloatingViewManager
+     */
+    @NonNull
+    public FloatingViewManager getFloatingViewManager() {
+        return mFloatingViewManager;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addBubble(@NonNull String id, @Nullable Bitmap avatar, int badgeCount, @NonNull FloatingViewManager.Options options) {
+        removeBubble(id);
+        final BubbleContent bubbleContent = new BubbleContent(avatar);
+        bubbleContent.setBadgeCount(badgeCount);
+        mBubbleContentMap.put(id, bubbleContent);
+        mIdMap.put(bubbleContent, id);
+        mFloatingViewManager.addViewToWindow(bubbleContent, options);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setAvatar(@NonNull String id, @Nullable Bitmap avatar) {
+        final BubbleContent bubbleContent = mBubbleContentMap.get(id);
+        if (bubbleContent != null) {
+            bubbleContent.setAvatar(avatar);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setBadgeCount(@NonNull String id, int badgeCount) {
+        final BubbleContent bubbleContent = mBubbleContentMap.get(id);
+        if (bubbleContent != null) {
+            bubbleContent.setBadgeCount(badgeCount);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeBubble(@NonNull String id) {
+        final BubbleContent bubbleContent = mBubbleContentMap.remove(id);
+        if (bubbleContent == null) {
+            return;
+        }
+        mIdMap.remove(bubbleContent);
+        mIsRemovingBubbles = true;
+        mFloatingViewManager.removeViewToWindow(bubbleContent);
+        mIsRemovingBubbles = false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeAllBubbles() {
+        mBubbleContentMap.clear();
+        mIdMap.clear();
+        mIsRemovingBubbles = true;
+        mFloatingViewManager.removeAllViewToWindow();
+        mIsRemovingBubbles = false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setFloatingViewHostListener(@Nullable FloatingViewHostListener listener) {
+        mFloatingViewHostListener = listener;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void release() {
+        mBubbleContentMap.clear();
+        mIdMap.clear();
+        mFloatingViewHostListener = null;
+        mFloatingViewManager.release();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onAllBubblesRemoved() {
+        // the caller of removeBubble/addBubble(replacement) already knows
+        if (mIsRemovingBubbles) {
+            return;
+        }
+        // the members of a deleted group bubble are not reported one by one
+        mBubbleContentMap.clear();
+        mIdMap.clear();
+        if (mFloatingViewHostListener != null) {
+            mFloatingViewHostListener.onFinishFloatingView();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onBubbleTouchFinished(BubbleContent bubbleContent, boolean isFinishing, int x, int y) {
+        final String id = mIdMap.get(bubbleContent);
+        if (id == null) {
+            return;
+        }
+        if (isFinishing) {
+            mIdMap.remove(mBubbleContentMap.remove(id));
+            if (mFloatingViewHostListener != null) {
+                mFloatingViewHostListener.onBubbleRemoved(id);
+            }
+        } else if (mFloatingViewHostListener != null) {
+            mFloatingViewHostListener.onBubbleMoved(id, x, y);
+        }
+    }
+}
@@ -0,0 +1,460 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+
+import androidx.core.util.AtomicFile;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide store of the last layouts(position and size) of the FloatingViews({@link FloatingViewManager.Options#bubbleId}).<br/>
+ * The layouts are kept in memory, and written to a binary file on the background thread after the writes have stopped for a while.
+ * The key is (bubble ID, orientation).
+ */
+final class PositionStore {
+
+    /**
+     * File name
+     */
+    private static final String FILE_NAME = "floatingview_positions.bin";
+
+    /**
+     * Magic number of the file("FVPS")
+     */
+    private static final int FILE_MAGIC = 0x46565053;
+
+    /**
+     * Version of the file format
+     */
+    private static final int FILE_VERSION = 2;
+
+    /**
+     * Version of the file format without the size
+     */
+    private static final int FILE_VERSION_POSITION_ONLY = 1;
+
+    /**
+     * Delay to coalesce the writes(ms)
+     */
+    private static final long WRITE_DELAY_MILLIS = 500;
+
+    /**
+     * Instance
+     */
+    private static PositionStore sInstance;
+
+    /**
+     * Layout of a bubble
+     */
+    static class Entry {
+
+        /**
+         * Bubble ID
+         */
+        final String bubbleId;
+
+        /**
+         * Orientation(Configuration.ORIENTATION_XXX)
+         */
+        final int orientation;
+
+        /**
+         * X coordinate
+         */
+        int x;
+
+        /**
+         * Y coordinate
+         */
+        int y;
+
+        /**
+         * Width(0 if unknown)
+         */
+        int width;
+
+        /**
+         * Height(0 if unknown)
+         */
+        int height;
+
+        /**
+         * Constructor
+         *
+         * @param bubbleId    bubble ID
+         * @param orientation orientation
+         */
+        Entry(String bubbleId, int orientation) {
+            this.bubbleId = bubbleId;
+            this.orientation = orientation;
+        }
+    }
+
+    /**
+     * Application context
+     */
+    private final Context mContext;
+
+    /**
+     * Lock of the positions
+     */
+    private final Object mLock;
+
+    /**
+     * Layouts(key is orientation:bubble ID)
+     */
+    private final HashMap<String, Entry> mEntryMap;
+
+    /**
+     * Tasks waiting for the load(with the Handlers to run them)
+     */
+    private final ArrayList<Runnable> mLoadedTaskList;
+
+    /**
+     * Handlers of the tasks waiting for the load
+     */
+    private final ArrayList<Handler> mLoadedHandlerList;
+
+    /**
+     * Handler of the background thread
+     */
+    private final Handler mHandler;
+
+    /**
+     * Task to write the file
+     */
+    private final Runnable mWriteTask;
+
+    /**
+     * File(created on the background thread)
+     */
+    private AtomicFile mFile;
+
+    /**
+     * True if the file has been loaded
+     */
+    private boolean mIsLoaded;
+
+    /**
+     * True if the layouts have changed since the last write
+     */
+    private boolean mIsDirty;
+
+    /**
+     * Get the instance.<br/>
+     * The file is loaded on the background thread.
+     *
+     * @param context Context
+     * @return PositionStore
+     */
+    static synchronized PositionStore getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new PositionStore(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Constructor
+     *
+     * @param context application context
+     */
+    private PositionStore(Context context) {
+        mContext = context;
+        mLock = new Object();
+        mEntryMap = new HashMap<>();
+        mLoadedTaskList = new ArrayList<>();
+        mLoadedHandlerList = new ArrayList<>();
+        final HandlerThread thread = new HandlerThread("FloatingViewPositionStore", Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        mHandler = new Handler(thread.getLooper());
+        mWriteTask = new Runnable() {
+            @Override
+            public void run() {
+                write();
+            }
+        };
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                load();
+            }
+        });
+    }
+
+    /**
+     * Run the task on the Handler after the file has been loaded(immediately posted if already loaded).
+     *
+     * @param handler Handler to run the task
+     * @param task    task
+     */
+    void runWhenLoaded(Handler handler, Runnable task) {
+        synchronized (mLock) {
+            if (!mIsLoaded) {
+                mLoadedHandlerList.add(handler);
+                mLoadedTaskList.add(task);
+                return;
+            }
+        }
+        handler.post(task);
+    }
+
+    /**
+     * Get the layout.
+     *
+     * @param bubbleId    bubble ID
+     * @param orientation Configuration.ORIENTATION_XXX
+     * @return copy of the layout(null if not found or not loaded yet)
+     */
+    Entry getEntry(String bubbleId, int orientation) {
+        synchronized (mLock) {
+            final Entry entry = mEntryMap.get(toKey(bubbleId, orientation));
+            return entry == null ? null : copyEntry(entry);
+        }
+    }
+
+    /**
+     * Check whether the file has been loaded.
+     *
+     * @return true if loaded
+     */
+    boolean isLoaded() {
+        synchronized (mLock) {
+            return mIsLoaded;
+        }
+    }
+
+    /**
+     * Set the layout.<br/>
+     * The file is written after WRITE_DELAY_MILLIS without the other changes.
+     *
+     * @param bubbleId    bubble ID
+     * @param orientation Configuration.ORIENTATION_XXX
+     * @param x           X coordinate
+     * @param y           Y coordinate
+     * @param width       width
+     * @param height      height
+     */
+    void putEntry(String bubbleId, int orientation, int x, int y, int width, int height) {
+        synchronized (mLock) {
+            final String key = toKey(bubbleId, orientation);
+            Entry entry = mEntryMap.get(key);
+            if (entry == null) {
+                entry = new Entry(bubbleId, orientation);
+                mEntryMap.put(key, entry);
+            } else if (entry.x == x && entry.y == y && entry.width == width && entry.height == height) {
+                return;
+            }
+            entry.x = x;
+            entry.y = y;
+            entry.width = width;
+            entry.height = height;
+            mIsDirty = true;
+        }
+        mHandler.removeCallbacks(mWriteTask);
+        mHandler.postDelayed(mWriteTask, WRITE_DELAY_MILLIS);
+    }
+
+    /**
+     * Write the pending changes without waiting for WRITE_DELAY_MILLIS(e.g. when the FloatingViews are removed).
+     */
+    void flush() {
+        synchronized (mLock) {
+            if (!mIsDirty) {
+                return;
+            }
+        }
+        mHandler.removeCallbacks(mWriteTask);
+        mHandler.post(mWriteTask);
+    }
+
+    /**
+     * Load the file(background thread).<br/>
+     * The positions set before the load have priority.
+     */
+    private void load() {
+        mFile = new AtomicFile(new File(mContext.getFilesDir(), FILE_NAME));
+        final HashMap<String, Entry> entryMap = new HashMap<>();
+        DataInputStream in = null;
+        try {
+            final FileInputStream fis = mFile.openRead();
+            in = new DataInputStream(new BufferedInputStream(fis));
+            readEntries(in, entryMap);
+        } catch (IOException e) {
+            // no file or broken file(start with the complete entries read so far)
+        } finally {
+            closeQuietly(in);
+        }
+
+        final ArrayList<Handler> handlerList;
+        final ArrayList<Runnable> taskList;
+        synchronized (mLock) {
+            for (String key : entryMap.keySet()) {
+                if (!mEntryMap.containsKey(key)) {
+                    mEntryMap.put(key, entryMap.get(key));
+                }
+            }
+            mIsLoaded = true;
+            handlerList = new ArrayList<>(mLoadedHandlerList);
+            taskList = new ArrayList<>(mLoadedTaskList);
+            mLoadedHandlerList.clear();
+            mLoadedTaskList.clear();
+        }
+        final int size = taskList.size();
+        for (int i = 0; i < size; i++) {
+            handlerList.get(i).post(taskList.get(i));
+        }
+    }
+
+    /**
+     * Write the file(background thread).
+     */
+    private void write() {
+        final ArrayList<Entry> entryList = new ArrayList<>();
+        synchronized (mLock) {
+            if (!mIsDirty) {
+                return;
+            }
+            mIsDirty = false;
+            for (Entry entry : mEntryMap.values()) {
+                entryList.add(copyEntry(entry));
+            }
+        }
+        FileOutputStream fos = null;
+        try {
+            fos = mFile.startWrite();
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            writeEntries(out, entryList);
+            out.flush();
+            mFile.finishWrite(fos);
+        } catch (IOException e) {
+            if (fos != null) {
+                mFile.failWrite(fos);
+            }
+            // written again with the next change
+            synchronized (mLock) {
+                mIsDirty = true;
+            }
+        }
+    }
+
+    /**
+     * Read the layouts in the file format.<br/>
+     * The layouts of an unknown format are ignored, and the size is 0 in the format without the size.
+     *
+     * @param in          stream
+     * @param outEntryMap map to receive the layouts(the complete entries are kept if the stream is truncated)
+     * @throws IOException if the stream is truncated
+     */
+    static void readEntries(DataInputStream in, Map<String, Entry> outEntryMap) throws IOException {
+        final int magic = in.readInt();
+        final int version = in.readInt();
+        if (magic != FILE_MAGIC || (version != FILE_VERSION && version != FILE_VERSION_POSITION_ONLY)) {
+            return;
+        }
+        final int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            final Entry entry = new Entry(in.readUTF(), in.readByte());
+            entry.x = in.readInt();
+            entry.y = in.readInt();
+            if (version == FILE_VERSION) {
+                entry.width = in.readInt();
+                entry.height = in.readInt();
+            }
+            outEntryMap.put(toKey(entry.bubbleId, entry.orientation), entry);
+        }
+    }
+
+    /**
+     * Write the layouts in the file format(FILE_VERSION).
+     *
+     * @param out       stream
+     * @param entryList layouts
+     * @throws IOException if the write has failed
+     */
+    static void writeEntries(DataOutputStream out, List<Entry> entryList) throws IOException {
+        out.writeInt(FILE_MAGIC);
+        out.writeInt(FILE_VERSION);
+        out.writeInt(entryList.size());
+        for (Entry entry : entryList) {
+            out.writeUTF(entry.bubbleId);
+            out.writeByte(entry.orientation);
+            out.writeInt(entry.x);
+            out.writeInt(entry.y);
+            out.writeInt(entry.width);
+            out.writeInt(entry.height);
+        }
+    }
+
+    /**
+     * Copy the layout.
+     *
+     * @param entry layout
+     * @return copy
+     */
+    private static Entry copyEntry(Entry entry) {
+        final Entry copy = new Entry(entry.bubbleId, entry.orientation);
+        copy.x = entry.x;
+        copy.y = entry.y;
+        copy.width = entry.width;
+        copy.height = entry.height;
+        return copy;
+    }
+
+    /**
+     * Close the stream without the exception.
+     *
+     * @param in stream
+     */
+    private static void closeQuietly(DataInputStream in) {
+        if (in == null) {
+            return;
+        }
+        try {
+            in.close();
+        } catch (IOException e) {
+            // do nothing
+        }
+    }
+
+    /**
+     * Make the key of the position.
+     *
+     * @param bubbleId    bubble ID
+     * @param orientation orientation
+     * @return key
+     */
+    static String toKey(String bubbleId, int orientation) {
+        return orientation + ":" + bubbleId;
+    }
+}
@@ -0,0 +1,213 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.Handler;
+import android.os.PowerManager;
+
+import androidx.annotation.RequiresApi;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Observes the power save mode(API 21+) and the thermal status(API 29+).
+ */
+class PowerPolicyObserver extends BroadcastReceiver {
+
+    /**
+     * Listener of the power policy.
+     */
+    interface OnPowerPolicyChangedListener {
+
+        /**
+         * Callback when the low power state has changed.
+         *
+         * @param isLowPower true if the power save mode is on or the device is hot
+         */
+        void onPowerPolicyChanged(boolean isLowPower);
+    }
+
+    /**
+     * Context
+     */
+    private final Context mContext;
+
+    /**
+     * PowerManager
+     */
+    private final PowerManager mPowerManager;
+
+    /**
+     * OnPowerPolicyChangedListener
+     */
+    private final OnPowerPolicyChangedListener mListener;
+
+    /**
+     * Thermal status listener(PowerManager.OnThermalStatusChangedListener)
+     */
+    private Object mThermalStatusListener;
+
+    /**
+     * Power save mode flag
+     */
+    private boolean mIsPowerSaveMode;
+
+    /**
+     * Thermal throttling flag
+     */
+    private boolean mIsThermalThrottling;
+
+    /**
+     * Observing flag
+     */
+    private boolean mIsObserving;
+
+    /**
+     * Handler of the thread which has started observing(the changes are notified on it)
+     */
+    private Handler mHandler;
+
+    /**
+     * Constructor
+     *
+     * @param context  Context
+     * @param listener OnPowerPolicyChangedListener
+     */
+    PowerPolicyObserver(Context context, OnPowerPolicyChangedListener listener) {
+        mContext = context;
+        mPowerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        mListener = listener;
+    }
+
+    /**
+     * Start observing.
+     */
+    void start() {
+        if (mIsObserving || mPowerManager == null) {
+            return;
+        }
+        mIsObserving = true;
+        // INFO:the UI may run on the other thread than the main thread
+        mHandler = new Handler();
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            mIsPowerSaveMode = mPowerManager.isPowerSaveMode();
+            mContext.registerReceiver(this, new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED), null, mHandler);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            startThermalStatusObserving();
+        }
+        notifyPowerPolicy();
+    }
+
+    /**
+     * Stop observing.
+     */
+    void stop() {
+        if (!mIsObserving) {
+            return;
+        }
+        mIsObserving = false;
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            mContext.unregisterReceiver(this);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            stopThermalStatusObserving();
+        }
+    }
+
+    /**
+     * Check the low power state.
+     *
+     * @return true if the power save mode is on or the device is hot
+     */
+    boolean isLowPower() {
+        return mIsPowerSaveMode || mIsThermalThrottling;
+    }
+
+    /**
+     * Power save mode changed.
+     */
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return;
+        }
+        mIsPowerSaveMode = mPowerManager.isPowerSaveMode();
+        notifyPowerPolicy();
+    }
+
+    /**
+     * Start observing the thermal status.
+     */
+    @RequiresApi(Build.VERSION_CODES.Q)
+    private void startThermalStatusObserving() {
+        final PowerManager.OnThermalStatusChangedListener listener = new PowerManager.OnThermalStatusChangedListener() {
+            @Override
+            public void onThermalStatusChanged(int status) {
+                mIsThermalThrottling = isThermalThrottling(status);
+                notifyPowerPolicy();
+            }
+        };
+        mIsThermalThrottling = isThermalThrottling(mPowerManager.getCurrentThermalStatus());
+        final Handler handler = mHandler;
+        mPowerManager.addThermalStatusListener(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                handler.post(command);
+            }
+        }, listener);
+        mThermalStatusListener = listener;
+    }
+
+    /**
+     * Stop observing the thermal status.
+     */
+    @RequiresApi(Build.VERSION_CODES.Q)
+    private void stopThermalStatusObserving() {
+        if (mThermalStatusListener != null) {
+            mPowerManager.removeThermalStatusListener((PowerManager.OnThermalStatusChangedListener) mThermalStatusListener);
+            mThermalStatusListener = null;
+        }
+        mIsThermalThrottling = false;
+    }
+
+    /**
+     * Check whether the thermal status requires throttling.
+     *
+     * @param status PowerManager.THERMAL_STATUS_XXX
+     * @return true if moderate or higher
+     */
+    private static boolean isThermalThrottling(int status) {
+        return status >= PowerManager.THERMAL_STATUS_MODERATE;
+    }
+
+    /**
+     * Notify the current power policy.
+     */
+    private void notifyPowerPolicy() {
+        if (mListener != null && mIsObserving) {
+            mListener.onPowerPolicyChanged(isLowPower());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+/**
+ * Listener of the animation quality tier.
+ */
+public interface QualityTierListener {
+
+    /**
+     * Callback when the animation quality tier has changed.
+     *
+     * @param qualityTier {@link FloatingViewManager#QUALITY_TIER_HIGH} or {@link FloatingViewManager#QUALITY_TIER_MEDIUM} or {@link FloatingViewManager#QUALITY_TIER_LOW}
+     *                    or {@link FloatingViewManager#QUALITY_TIER_LOW_POWER}
+     */
+    void onQualityTierChanged(@FloatingViewManager.QualityTier int qualityTier);
+}
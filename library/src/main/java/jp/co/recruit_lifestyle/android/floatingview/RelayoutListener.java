@@ -0,0 +1,36 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.graphics.Rect;
+
+/**
+ * Listener of the relayout of the FloatingView after the display has changed.
+ */
+interface RelayoutListener {
+
+    /**
+     * Called when the FloatingView needs the new position after the display has changed.
+     *
+     * @param floatingView         FloatingView
+     * @param oldPositionLimitRect position limit rect before the change
+     * @param newPositionLimitRect position limit rect after the change
+     * @return true if the new position will be applied later by {@link FloatingView#applyRelayout(int, int)}.
+     * false if the FloatingView moves by itself
+     */
+    boolean onRelayoutRequested(FloatingView floatingView, Rect oldPositionLimitRect, Rect newPositionLimitRect);
+}
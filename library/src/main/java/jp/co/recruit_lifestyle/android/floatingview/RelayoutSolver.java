@@ -0,0 +1,108 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Solver of the positions of the FloatingViews after the display has changed.<br/>
+ * This is a pure function of the limit rects(old and new display state) and the positions and sizes,
+ * so it can run on a background thread.
+ */
+final class RelayoutSolver {
+
+    /**
+     * Number of the values of a limit rect(left, top, right, bottom)
+     */
+    static final int RECT_SIZE = 4;
+
+    /**
+     * Not instantiable
+     */
+    private RelayoutSolver() {
+    }
+
+    /**
+     * Solve the new positions.<br/>
+     * Each position is rescaled by the ratio of the limit rects and clamped. If the edge packing is enabled,
+     * the FloatingViews on the left and right edges are packed into free slots in the order of the position.
+     *
+     * @param count        number of the FloatingViews
+     * @param positions    positions(x0, y0, x1, y1, ...)
+     * @param heights      heights
+     * @param oldLimits    old position limit rects(left0, top0, right0, bottom0, ...)
+     * @param newLimits    new position limit rects(left0, top0, right0, bottom0, ...)
+     * @param isEdgePacked true if the edge packing is enabled
+     * @return new positions(x0, y0, x1, y1, ...)
+     */
+    static int[] solve(int count, int[] positions, int[] heights, int[] oldLimits, int[] newLimits, boolean isEdgePacked) {
+        final int[] goals = new int[count * 2];
+        for (int i = 0; i < count; i++) {
+            final int limitIndex = i * RECT_SIZE;
+            final int oldWidth = oldLimits[limitIndex + 2] - oldLimits[limitIndex];
+            final int oldHeight = oldLimits[limitIndex + 3] - oldLimits[limitIndex + 1];
+            final int newWidth = newLimits[limitIndex + 2] - newLimits[limitIndex];
+            final int newHeight = newLimits[limitIndex + 3] - newLimits[limitIndex + 1];
+            final int x = positions[i * 2];
+            final int y = positions[i * 2 + 1];
+            final int newX = oldWidth == 0 ? x : (int) (x * newWidth / (float) oldWidth + 0.5f);
+            final int newY = oldHeight == 0 ? y : (int) (y * newHeight / (float) oldHeight + 0.5f);
+            goals[i * 2] = Math.min(Math.max(newLimits[limitIndex], newX), newLimits[limitIndex + 2]);
+            goals[i * 2 + 1] = Math.min(Math.max(newLimits[limitIndex + 1], newY), newLimits[limitIndex + 3]);
+        }
+        if (isEdgePacked) {
+            packEdges(count, goals, heights, newLimits);
+        }
+        return goals;
+    }
+
+    /**
+     * Pack the FloatingViews on the left and right edges.
+     *
+     * @param count   number of the FloatingViews
+     * @param goals   positions to be packed(x0, y0, x1, y1, ...)
+     * @param heights heights
+     * @param limits  position limit rects
+     */
+    private static void packEdges(int count, final int[] goals, int[] heights, int[] limits) {
+        // the lower FloatingView keeps its position first
+        final Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer lhs, Integer rhs) {
+                final int lhsY = goals[lhs * 2 + 1];
+                final int rhsY = goals[rhs * 2 + 1];
+                return lhsY < rhsY ? -1 : (lhsY == rhsY ? 0 : 1);
+            }
+        });
+        final EdgeSlotAllocator<Integer> allocator = new EdgeSlotAllocator<>();
+        for (Integer index : order) {
+            final int limitIndex = index * RECT_SIZE;
+            final int x = goals[index * 2];
+            final boolean isLeftEdge = x <= limits[limitIndex];
+            final boolean isRightEdge = x >= limits[limitIndex + 2];
+            if (!isLeftEdge && !isRightEdge) {
+                continue;
+            }
+            goals[index * 2 + 1] = allocator.allocate(index, isRightEdge, goals[index * 2 + 1], heights[index], limits[limitIndex + 1], limits[limitIndex + 3]);
+        }
+    }
+}
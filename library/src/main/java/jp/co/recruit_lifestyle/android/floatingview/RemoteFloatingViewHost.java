@@ -0,0 +1,383 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.graphics.Bitmap;
+import android.os.Bundle;
+import android.os.DeadObjectException;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.RemoteException;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link FloatingViewHost} drawing the bubbles in {@link FloatingViewHostService}.<br/>
+ * The commands are sent with a Messenger(ints in the Message args, the avatar as PNG bytes scaled to the displayed size).
+ * addBubble and setAvatar throw IllegalArgumentException if the encoded avatar is still too large for a transaction.<br/>
+ * The last avatar, badge count and options of each bubble are kept, and all the bubbles are added again when the service is connected,
+ * so the commands before the connection are not lost and the bubbles come back after the process of the service has died
+ * (use {@link FloatingViewManager.Options#bubbleId} to restore their positions as well).<br/>
+ * If the service can not be bound(e.g. not declared in the manifest), the bubbles are drawn in this process by {@link LocalFloatingViewHost}.
+ */
+public class RemoteFloatingViewHost implements FloatingViewHost, ServiceConnection {
+
+    /**
+     * Context
+     */
+    private final Context mContext;
+
+    /**
+     * Messenger receiving the events
+     */
+    private final Messenger mReplyMessenger;
+
+    /**
+     * Last state of each bubble(added again on connect)
+     */
+    private final LinkedHashMap<String, BubbleState> mBubbleStateMap;
+
+    /**
+     * Messenger of the service(null until connected)
+     */
+    private Messenger mService;
+
+    /**
+     * True if bound to the service
+     */
+    private boolean mIsBound;
+
+    /**
+     * Host drawing the bubbles in this process if the service can not be bound(null if bound)
+     */
+    private final LocalFloatingViewHost mFallbackHost;
+
+    /**
+     * FloatingViewHostListener
+     */
+    private FloatingViewHostListener mFloatingViewHostListener;
+
+    /**
+     * Constructor<br/>
+     * Binds to the service immediately, and falls back to {@link LocalFloatingViewHost} if it can not be bound.
+     *
+     * @param context      Context
+     * @param serviceClass {@link FloatingViewHostService} or its subclass declared in the manifest
+     */
+    public RemoteFloatingViewHost(Context context, Class<? extends FloatingViewHostService> serviceClass) {
+        mContext = context.getApplicationContext();
+        mReplyMessenger = new Messenger(new EventHandler(this));
+        mBubbleStateMap = new LinkedHashMap<>();
+        mIsBound = mContext.bindService(new Intent(mContext, serviceClass), this, Context.BIND_AUTO_CREATE);
+        mFallbackHost = mIsBound ? null : new LocalFloatingViewHost(mContext);
+    }
+
+    /**
+     * Check whether the bubbles are drawn by the service.
+     *
+     * @return true if bound to the service. false if the bubbles are drawn in this process
+     */
+    public boolean isRemote() {
+        return mFallbackHost == null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addBubble(@NonNull String id, @Nullable Bitmap avatar, int badgeCount, @NonNull FloatingViewManager.Options options) {
+        if (mFallbackHost != null) {
+            mFallbackHost.addBubble(id, avatar, badgeCount, options);
+            return;
+        }
+        final BubbleState bubbleState = new BubbleState(options.floatingViewWidth, options.floatingViewHeight, badgeCount, HostProtocol.createOptionsData(options));
+        bubbleState.mAvatarData = HostProtocol.encodeAvatar(avatar, bubbleState.mWidth, bubbleState.mHeight);
+        mBubbleStateMap.remove(id);
+        mBubbleStateMap.put(id, bubbleState);
+        sendAddBubble(id, bubbleState);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setAvatar(@NonNull String id, @Nullable Bitmap avatar) {
+        if (mFallbackHost != null) {
+            mFallbackHost.setAvatar(id, avatar);
+            return;
+        }
+        final BubbleState bubbleState = mBubbleStateMap.get(id);
+        if (bubbleState == null) {
+            // not added(or deleted by the user)
+            return;
+        }
+        bubbleState.mAvatarData = HostProtocol.encodeAvatar(avatar, bubbleState.mWidth, bubbleState.mHeight);
+        final Message message = HostProtocol.obtain(HostProtocol.MSG_SET_AVATAR, id, 0, 0);
+        HostProtocol.putAvatar(message, bubbleState.mAvatarData);
+        send(message);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setBadgeCount(@NonNull String id, int badgeCount) {
+        if (mFallbackHost != null) {
+            mFallbackHost.setBadgeCount(id, badgeCount);
+            return;
+        }
+        final BubbleState bubbleState = mBubbleStateMap.get(id);
+        if (bubbleState != null) {
+            bubbleState.mBadgeCount = badgeCount;
+        }
+        send(HostProtocol.obtain(HostProtocol.MSG_SET_BADGE_COUNT, id, badgeCount, 0));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeBubble(@NonNull String id) {
+        if (mFallbackHost != null) {
+            mFallbackHost.removeBubble(id);
+            return;
+        }
+        mBubbleStateMap.remove(id);
+        send(HostProtocol.obtain(HostProtocol.MSG_REMOVE_BUBBLE, id, 0, 0));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeAllBubbles() {
+        if (mFallbackHost != null) {
+            mFallbackHost.removeAllBubbles();
+            return;
+        }
+        mBubbleStateMap.clear();
+        send(HostProtocol.obtain(HostProtocol.MSG_REMOVE_ALL_BUBBLES, null, 0, 0));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setFloatingViewHostListener(@Nullable FloatingViewHostListener listener) {
+        mFloatingViewHostListener = listener;
+        if (mFallbackHost != null) {
+            mFallbackHost.setFloatingViewHostListener(listener);
+        }
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The service removes the bubbles when the last client has unbound.
+     */
+    @Override
+    public void release() {
+        mFloatingViewHostListener = null;
+        if (mFallbackHost != null) {
+            mFallbackHost.release();
+        }
+        if (mIsBound) {
+            removeAllBubbles();
+            mIsBound = false;
+            mContext.unbindService(this);
+        }
+        mBubbleStateMap.clear();
+        mService = null;
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * Also called when the service has restarted after its process died, so all the bubbles are added again.
+     */
+    @Override
+    public void onServiceConnected(ComponentName name, IBinder service) {
+        mService = new Messenger(service);
+        final Message message = HostProtocol.obtain(HostProtocol.MSG_REGISTER_CLIENT, null, 0, 0);
+        message.replyTo = mReplyMessenger;
+        send(message);
+        // INFO:the bubble with the same ID is replaced, so the bubbles still shown by the service are not duplicated
+        for (Map.Entry<String, BubbleState> entry : mBubbleStateMap.entrySet()) {
+            sendAddBubble(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onServiceDisconnected(ComponentName name) {
+        // the service is bound again when it restarts(the bubbles are added again on connect)
+        mService = null;
+    }
+
+    /**
+     * Send the command adding the bubble.
+     *
+     * @param id          ID of the bubble
+     * @param bubbleState BubbleState
+     */
+    private void sendAddBubble(String id, BubbleState bubbleState) {
+        final Message message = HostProtocol.obtain(HostProtocol.MSG_ADD_BUBBLE, id, bubbleState.mBadgeCount, 0);
+        HostProtocol.putAvatar(message, bubbleState.mAvatarData);
+        HostProtocol.putOptions(message, bubbleState.mOptionsData);
+        send(message);
+    }
+
+    /**
+     * Send the command to the service.<br/>
+     * The command is dropped while disconnected, because the bubbles are added again with the last state on connect.
+     *
+     * @param message Message
+     */
+    private void send(Message message) {
+        if (!mIsBound || mService == null) {
+            return;
+        }
+        try {
+            mService.send(message);
+        } catch (DeadObjectException e) {
+            // the process of the service has died(onServiceDisconnected and onServiceConnected follow)
+            mService = null;
+        } catch (RemoteException e) {
+            // the service is alive(e.g. TransactionTooLargeException), so only this command is dropped
+        }
+    }
+
+    /**
+     * Dispatch the event from the service.
+     *
+     * @param msg Message
+     */
+    private void onEvent(Message msg) {
+        final String id = HostProtocol.getId(msg);
+        // the bubbles deleted by the user are not added again on connect
+        if (msg.what == HostProtocol.MSG_BUBBLE_REMOVED) {
+            mBubbleStateMap.remove(id);
+        } else if (msg.what == HostProtocol.MSG_FINISH_FLOATING_VIEW) {
+            mBubbleStateMap.clear();
+        }
+        if (mFloatingViewHostListener == null) {
+            return;
+        }
+        switch (msg.what) {
+            case HostProtocol.MSG_BUBBLE_MOVED:
+                mFloatingViewHostListener.onBubbleMoved(id, msg.arg1, msg.arg2);
+                break;
+            case HostProtocol.MSG_BUBBLE_REMOVED:
+                mFloatingViewHostListener.onBubbleRemoved(id);
+                break;
+            case HostProtocol.MSG_FINISH_FLOATING_VIEW:
+                mFloatingViewHostListener.onFinishFloatingView();
+                break;
+        }
+    }
+
+    /**
+     * Last state of the bubble.
+     */
+    static class BubbleState {
+
+        /**
+         * Displayed width(px, 0 or less if the size of the avatar)
+         */
+        private final int mWidth;
+
+        /**
+         * Displayed height(px, 0 or less if the size of the avatar)
+         */
+        private final int mHeight;
+
+        /**
+         * PNG bytes of the avatar(encoded once and reused on connect)
+         */
+        private byte[] mAvatarData;
+
+        /**
+         * Badge count
+         */
+        private int mBadgeCount;
+
+        /**
+         * Data of the options(see HostProtocol#createOptionsData)
+         */
+        private final Bundle mOptionsData;
+
+        /**
+         * Constructor
+         *
+         * @param width       displayed width
+         * @param height      displayed height
+         * @param badgeCount  badge count
+         * @param optionsData data of the options
+         */
+        BubbleState(int width, int height, int badgeCount, Bundle optionsData) {
+            mWidth = width;
+            mHeight = height;
+            mBadgeCount = badgeCount;
+            mOptionsData = optionsData;
+        }
+    }
+
+    /**
+     * Handler receiving the events on the main thread.
+     */
+    static class EventHandler extends Handler {
+
+        /**
+         * RemoteFloatingViewHost
+         */
+        private final WeakReference<RemoteFloatingViewHost> mFloatingViewHost;
+
+        /**
+         * Constructor
+         *
+         * @param floatingViewHost RemoteFloatingViewHost
+         */
+        EventHandler(RemoteFloatingViewHost floatingViewHost) {
+            super(Looper.getMainLooper());
+            mFloatingViewHost = new WeakReference<>(floatingViewHost);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void handleMessage(Message msg) {
+            final RemoteFloatingViewHost floatingViewHost = mFloatingViewHost.get();
+            if (floatingViewHost == null) {
+                return;
+            }
+            floatingViewHost.onEvent(msg);
+        }
+    }
+}
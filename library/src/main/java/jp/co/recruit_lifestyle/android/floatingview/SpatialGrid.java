@@ -0,0 +1,194 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.graphics.Rect;
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Uniform grid spatial index.<br/>
+ * An item is registered to every cell overlapping its bounds, so a point query only looks at one cell.
+ *
+ * @param <T> item type
+ */
+class SpatialGrid<T> {
+
+    /**
+     * Size of a cell(px)
+     */
+    private final int mCellSize;
+
+    /**
+     * Cells(key is the packed cell coordinates)
+     */
+    private final SparseArray<ArrayList<T>> mCells;
+
+    /**
+     * Constructor
+     *
+     * @param cellSize size of a cell(px)
+     */
+    SpatialGrid(int cellSize) {
+        mCellSize = Math.max(cellSize, 1);
+        mCells = new SparseArray<>();
+    }
+
+    /**
+     * Register the item.
+     *
+     * @param item   item
+     * @param bounds bounds of the item
+     */
+    void insert(T item, Rect bounds) {
+        final int left = toCell(bounds.left);
+        final int top = toCell(bounds.top);
+        final int right = toCell(bounds.right);
+        final int bottom = toCell(bounds.bottom);
+        for (int cellX = left; cellX <= right; cellX++) {
+            for (int cellY = top; cellY <= bottom; cellY++) {
+                final int key = toKey(cellX, cellY);
+                ArrayList<T> cell = mCells.get(key);
+                if (cell == null) {
+                    cell = new ArrayList<>();
+                    mCells.put(key, cell);
+                }
+                cell.add(item);
+            }
+        }
+    }
+
+    /**
+     * Remove the item.
+     *
+     * @param item   item
+     * @param bounds bounds used on insert
+     */
+    void remove(T item, Rect bounds) {
+        final int left = toCell(bounds.left);
+        final int top = toCell(bounds.top);
+        final int right = toCell(bounds.right);
+        final int bottom = toCell(bounds.bottom);
+        for (int cellX = left; cellX <= right; cellX++) {
+            for (int cellY = top; cellY <= bottom; cellY++) {
+                final int key = toKey(cellX, cellY);
+                final ArrayList<T> cell = mCells.get(key);
+                if (cell == null) {
+                    continue;
+                }
+                cell.remove(item);
+                if (cell.isEmpty()) {
+                    mCells.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Move the item.<br/>
+     * Nothing is done while the item stays in the same cells.
+     *
+     * @param item      item
+     * @param oldBounds bounds used on insert
+     * @param newBounds new bounds
+     */
+    void move(T item, Rect oldBounds, Rect newBounds) {
+        if (toCell(oldBounds.left) == toCell(newBounds.left) && toCell(oldBounds.top) == toCell(newBounds.top)
+                && toCell(oldBounds.right) == toCell(newBounds.right) && toCell(oldBounds.bottom) == toCell(newBounds.bottom)) {
+            return;
+        }
+        remove(item, oldBounds);
+        insert(item, newBounds);
+    }
+
+    /**
+     * Remove all the items.
+     */
+    void clear() {
+        mCells.clear();
+    }
+
+    /**
+     * Get the items whose cells contain the point.
+     *
+     * @param x       X coordinate
+     * @param y       Y coordinate
+     * @param outList list to receive the items(not cleared)
+     */
+    void query(int x, int y, List<T> outList) {
+        final ArrayList<T> cell = mCells.get(toKey(toCell(x), toCell(y)));
+        if (cell != null) {
+            outList.addAll(cell);
+        }
+    }
+
+    /**
+     * Get the items whose cells overlap the bounds.<br/>
+     * Each item is added only once.
+     *
+     * @param bounds  bounds
+     * @param outList list to receive the items(not cleared)
+     */
+    void query(Rect bounds, List<T> outList) {
+        final int start = outList.size();
+        final int left = toCell(bounds.left);
+        final int top = toCell(bounds.top);
+        final int right = toCell(bounds.right);
+        final int bottom = toCell(bounds.bottom);
+        for (int cellX = left; cellX <= right; cellX++) {
+            for (int cellY = top; cellY <= bottom; cellY++) {
+                final ArrayList<T> cell = mCells.get(toKey(cellX, cellY));
+                if (cell == null) {
+                    continue;
+                }
+                final int size = cell.size();
+                for (int i = 0; i < size; i++) {
+                    final T item = cell.get(i);
+                    // an item spanning several cells is found more than once
+                    if (outList.subList(start, outList.size()).contains(item)) {
+                        continue;
+                    }
+                    outList.add(item);
+                }
+            }
+        }
+    }
+
+    /**
+     * Convert the coordinate to the cell coordinate.
+     *
+     * @param value coordinate
+     * @return cell coordinate
+     */
+    private int toCell(int value) {
+        // floor for the negative coordinates(over margin)
+        return (int) Math.floor(value / (float) mCellSize);
+    }
+
+    /**
+     * Pack the cell coordinates into a key.
+     *
+     * @param cellX cell X
+     * @param cellY cell Y
+     * @return key
+     */
+    private static int toKey(int cellX, int cellY) {
+        return (cellX << 16) | (cellY & 0xFFFF);
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Point;
+import android.util.LruCache;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.Nullable;
+
+/**
+ * Process-wide cache of the decoded trash icons.<br/>
+ * The icons are decoded with inSampleSize at the displayed size, and shared across the FloatingViewManager instances.
+ * The key is (resource ID, density, target size), and the bounds of the resource are only decoded on a cache miss.
+ */
+final class TrashIconCache {
+
+    /**
+     * Maximum size of the cache(bytes)
+     */
+    private static final int MAX_CACHE_SIZE = 2 * 1024 * 1024;
+
+    /**
+     * Cache of the decoded icons
+     */
+    private static final LruCache<String, Bitmap> sCache = new LruCache<String, Bitmap>(MAX_CACHE_SIZE) {
+        @Override
+        protected int sizeOf(String key, Bitmap value) {
+            return value.getRowBytes() * value.getHeight();
+        }
+    };
+
+    /**
+     * Maximum number of the cached intrinsic sizes
+     */
+    private static final int MAX_INTRINSIC_SIZE_COUNT = 32;
+
+    /**
+     * Intrinsic sizes on the display(key: resource ID and density)
+     */
+    private static final LruCache<String, Point> sIntrinsicSizeCache = new LruCache<>(MAX_INTRINSIC_SIZE_COUNT);
+
+    /**
+     * Not instantiable
+     */
+    private TrashIconCache() {
+    }
+
+    /**
+     * Get the decoded icon.<br/>
+     * Returns null if the resource is not a bitmap(e.g. vector drawable, nine-patch).
+     *
+     * @param resources    Resources
+     * @param resId        drawable ID
+     * @param targetWidth  displayed width(px). 0 or less is the intrinsic width
+     * @param targetHeight displayed height(px). 0 or less is the intrinsic height
+     * @return Bitmap(the density is the display density) or null
+     */
+    @Nullable
+    static Bitmap getBitmap(Resources resources, @DrawableRes int resId, int targetWidth, int targetHeight) {
+        final int densityDpi = resources.getDisplayMetrics().densityDpi;
+        BitmapFactory.Options options = null;
+        int width = targetWidth;
+        int height = targetHeight;
+        if (width <= 0 || height <= 0) {
+            // intrinsic size on this display
+            final String sizeKey = resId + ":" + densityDpi;
+            Point intrinsicSize = sIntrinsicSizeCache.get(sizeKey);
+            if (intrinsicSize == null) {
+                options = decodeBounds(resources, resId);
+                if (options == null) {
+                    return null;
+                }
+                final float densityScale = options.inDensity > 0 ? densityDpi / (float) options.inDensity : 1.0f;
+                intrinsicSize = new Point(Math.max(Math.round(options.outWidth * densityScale), 1), Math.max(Math.round(options.outHeight * densityScale), 1));
+                sIntrinsicSizeCache.put(sizeKey, intrinsicSize);
+            }
+            width = width > 0 ? width : intrinsicSize.x;
+            height = height > 0 ? height : intrinsicSize.y;
+        }
+
+        final String key = resId + ":" + densityDpi + ":" + width + "x" + height;
+        final Bitmap cachedBitmap = sCache.get(key);
+        if (cachedBitmap != null) {
+            return cachedBitmap;
+        }
+        if (options == null) {
+            options = decodeBounds(resources, resId);
+            if (options == null) {
+                return null;
+            }
+        }
+
+        // decode at the smallest power of 2 not smaller than the target size
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= width && options.outHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inScaled = false;
+        final Bitmap decodedBitmap;
+        try {
+            decodedBitmap = BitmapFactory.decodeResource(resources, resId, options);
+        } catch (OutOfMemoryError e) {
+            return null;
+        }
+        if (decodedBitmap == null || decodedBitmap.getNinePatchChunk() != null) {
+            return null;
+        }
+        Bitmap bitmap = decodedBitmap;
+        if (bitmap.getWidth() != width || bitmap.getHeight() != height) {
+            bitmap = Bitmap.createScaledBitmap(decodedBitmap, width, height, true);
+            if (bitmap != decodedBitmap) {
+                decodedBitmap.recycle();
+            }
+        }
+        bitmap.setDensity(densityDpi);
+        sCache.put(key, bitmap);
+        return bitmap;
+    }
+
+    /**
+     * Decode the bounds of the resource(inDensity is set from the resource directory).
+     *
+     * @param resources Resources
+     * @param resId     drawable ID
+     * @return BitmapFactory.Options with the bounds, or null if the resource is not a bitmap
+     */
+    @Nullable
+    private static BitmapFactory.Options decodeBounds(Resources resources, @DrawableRes int resId) {
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, resId, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        return options;
+    }
+
+    /**
+     * Release the cache under memory pressure.<br/>
+     * The bitmaps are not recycled because they may be drawn by TrashView.
+     *
+     * @param level ComponentCallbacks2.TRIM_MEMORY_XXX
+     */
+    static void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            sCache.evictAll();
+        } else {
+            sCache.trimToSize(MAX_CACHE_SIZE / 2);
+        }
+    }
+}
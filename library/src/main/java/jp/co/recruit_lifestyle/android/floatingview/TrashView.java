@@ -16,29 +16,42 @@
 
 package jp.co.recruit_lifestyle.android.floatingview;
 
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
 import android.animation.ObjectAnimator;
 import android.animation.PropertyValuesHolder;
+import android.animation.TimeInterpolator;
 import android.content.Context;
 import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
 import android.graphics.PixelFormat;
 import android.graphics.Rect;
+import android.graphics.Shader;
+import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
-import android.graphics.drawable.GradientDrawable;
 import android.os.Build;
 import android.os.Handler;
+import android.os.Looper;
 import android.os.Message;
 import android.os.SystemClock;
 import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
 import android.util.DisplayMetrics;
 import android.view.Gravity;
 import android.view.MotionEvent;
+import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
+import android.view.ViewPropertyAnimator;
 import android.view.ViewTreeObserver;
 import android.view.WindowManager;
+import android.view.animation.LinearInterpolator;
 import android.view.animation.OvershootInterpolator;
 import android.widget.FrameLayout;
-import android.widget.ImageView;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -46,6 +59,9 @@ import java.lang.ref.WeakReference;
 
 /**
  * FloatingViewを消すためのViewです。
+ * INFO:The view is a single FrameLayout with three custom-drawn leaf views(the background and the two trash icons, no nested layouts or ImageViews).
+ * The leaf views are kept separate instead of drawing everything in one view, because they are animated independently with ViewPropertyAnimator.
+ * They are only moved, scaled and faded through the view properties, so an animation frame does not redraw their content.
  */
 class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListener {
 
@@ -54,6 +70,16 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
      */
     private static final int BACKGROUND_HEIGHT = 164;
 
+    /**
+     * Start color of the background gradient
+     */
+    private static final int BACKGROUND_START_COLOR = 0x00000000;
+
+    /**
+     * End color of the background gradient
+     */
+    private static final int BACKGROUND_END_COLOR = 0x50000000;
+
     /**
      * ターゲットを取り込む水平領域(dp)
      */
@@ -105,6 +131,16 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
      */
     private static final int OVERLAY_TYPE;
 
+    /**
+     * Background shader shared across the instances
+     */
+    private static Shader sBackgroundShader;
+
+    /**
+     * Height of the shared background shader
+     */
+    private static int sBackgroundShaderHeight;
+
     /**
      * WindowManager
      */
@@ -121,24 +157,69 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
     private final DisplayMetrics mMetrics;
 
     /**
-     * ルートView（背景、削除アイコンを含むView）
+     * 背景View
+     */
+    private final BackgroundView mBackgroundView;
+
+    /**
+     * View of the fixed trash icon
      */
-    private final ViewGroup mRootView;
+    private final TrashIconView mFixedTrashIconView;
 
     /**
-     * 削除アイコン
+     * View of the action trash icon
      */
-    private final FrameLayout mTrashIconRootView;
+    private final TrashIconView mActionTrashIconView;
 
     /**
      * 固定された削除アイコン
      */
-    private final ImageView mFixedTrashIconView;
+    private Drawable mFixedTrashIcon;
 
     /**
      * 重なりに応じて動作する削除アイコン
      */
-    private final ImageView mActionTrashIconView;
+    private Drawable mActionTrashIcon;
+
+    /**
+     * Resource ID of the fixed trash icon(0 if set by Drawable)
+     */
+    private int mFixedTrashIconResId;
+
+    /**
+     * Resource ID of the action trash icon(0 if set by Drawable)
+     */
+    private int mActionTrashIconResId;
+
+    /**
+     * True if the resources have been released by onTrimMemory
+     */
+    private boolean mIsResourceReleased;
+
+    /**
+     * Layout rect of the trash icons(without translation)
+     */
+    private final Rect mTrashIconRect;
+
+    /**
+     * Cached capture rect on the Window(see getWindowDrawingRect)
+     */
+    private final Rect mCaptureRect;
+
+    /**
+     * True if the capture rect must be recalculated(layout or icon has changed)
+     */
+    private boolean mIsCaptureRectDirty;
+
+    /**
+     * TranslationX of the trash icons used for the cached capture rect
+     */
+    private float mCaptureTranslationX;
+
+    /**
+     * TranslationY of the trash icons used for the cached capture rect
+     */
+    private float mCaptureTranslationY;
 
     /**
      * ActionTrashIconの幅
@@ -155,11 +236,6 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
      */
     private float mActionTrashIconMaxScale;
 
-    /**
-     * 背景View
-     */
-    private final FrameLayout mBackgroundView;
-
     /**
      * 削除アイコンの枠内に入った時のアニメーション（拡大）
      */
@@ -170,6 +246,26 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
      */
     private ObjectAnimator mExitScaleAnimator;
 
+    /**
+     * Interpolator of the scale animations(shared by the enter and exit animators)
+     */
+    private final OvershootInterpolator mScaleInterpolator;
+
+    /**
+     * Width of the target FloatingView used for the scale animations
+     */
+    private float mScaleTargetWidth;
+
+    /**
+     * Height of the target FloatingView used for the scale animations
+     */
+    private float mScaleTargetHeight;
+
+    /**
+     * Shape of the target FloatingView used for the scale animations
+     */
+    private float mScaleTargetShape;
+
     /**
      * アニメーションを行うハンドラ
      */
@@ -185,6 +281,12 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
      */
     private boolean mIsEnabled;
 
+    /**
+     * Animation quality tier
+     */
+    @FloatingViewManager.QualityTier
+    private int mQualityTier;
+
     static {
         if (Build.VERSION.SDK_INT <= Build.VERSION_CODES.N_MR1) {
             OVERLAY_TYPE = WindowManager.LayoutParams.TYPE_PRIORITY_PHONE;
@@ -197,18 +299,21 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
      * コンストラクタ
      *
      * @param context Context
+     * @param looper  Looper of the thread where the window is attached
      */
-    TrashView(Context context) {
+    TrashView(Context context, Looper looper) {
         super(context);
         mWindowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
         mMetrics = new DisplayMetrics();
         mWindowManager.getDefaultDisplay().getMetrics(mMetrics);
-        mAnimationHandler = new AnimationHandler(this);
+        mAnimationHandler = new AnimationHandler(this, looper);
         mIsEnabled = true;
+        mQualityTier = FloatingViewManager.QUALITY_TIER_HIGH;
 
+        // INFO:The window covers only the trash region(background strip at the bottom of the screen) to reduce the surface size
         mParams = new WindowManager.LayoutParams();
         mParams.width = ViewGroup.LayoutParams.MATCH_PARENT;
-        mParams.height = ViewGroup.LayoutParams.MATCH_PARENT;
+        mParams.height = (int) (BACKGROUND_HEIGHT * mMetrics.density);
         mParams.type = OVERLAY_TYPE;
         mParams.flags = WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE |
                 WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE |
@@ -217,56 +322,55 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
         // INFO:Windowの原点のみ左下に設定
         mParams.gravity = Gravity.LEFT | Gravity.BOTTOM;
 
-        // 各種Viewの設定
-        // TrashViewに直接貼り付けられるView（このViewを介さないと、削除Viewと背景Viewのレイアウトがなぜか崩れる）
-        mRootView = new FrameLayout(context);
-        mRootView.setClipChildren(false);
-        // 削除アイコンのルートView
-        mTrashIconRootView = new FrameLayout(context);
-        mTrashIconRootView.setClipChildren(false);
-        mFixedTrashIconView = new ImageView(context);
-        mActionTrashIconView = new ImageView(context);
-        // 背景View
-        mBackgroundView = new FrameLayout(context);
+        // 背景(the shader is set when the size is decided)
+        mBackgroundView = new BackgroundView(context);
         mBackgroundView.setAlpha(0.0f);
-        final GradientDrawable gradientDrawable = new GradientDrawable(GradientDrawable.Orientation.TOP_BOTTOM, new int[]{0x00000000, 0x50000000});
-        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
-            //noinspection deprecation
-            mBackgroundView.setBackgroundDrawable(gradientDrawable);
-        } else {
-            mBackgroundView.setBackground(gradientDrawable);
-        }
-
-        // 背景Viewの貼り付け
-        final FrameLayout.LayoutParams backgroundParams = new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, (int) (BACKGROUND_HEIGHT * mMetrics.density));
-        backgroundParams.gravity = Gravity.BOTTOM;
-        mRootView.addView(mBackgroundView, backgroundParams);
-        // アクションアイコンの貼り付け
-        final FrameLayout.LayoutParams actionTrashIconParams = new FrameLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
-        actionTrashIconParams.gravity = Gravity.CENTER;
-        mTrashIconRootView.addView(mActionTrashIconView, actionTrashIconParams);
-        // 固定アイコンの貼付け
-        final FrameLayout.LayoutParams fixedTrashIconParams = new FrameLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
-        fixedTrashIconParams.gravity = Gravity.CENTER;
-        mTrashIconRootView.addView(mFixedTrashIconView, fixedTrashIconParams);
-        // 削除アイコンの貼り付け
-        final FrameLayout.LayoutParams trashIconParams = new FrameLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
-        trashIconParams.gravity = Gravity.CENTER_HORIZONTAL | Gravity.BOTTOM;
-        mRootView.addView(mTrashIconRootView, trashIconParams);
-
-        // TrashViewに貼り付け
-        addView(mRootView);
+        addView(mBackgroundView, new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+
+        // 削除アイコン(the action icon is below the fixed icon)
+        mActionTrashIconView = new TrashIconView(context);
+        addView(mActionTrashIconView, new FrameLayout.LayoutParams(0, 0, Gravity.BOTTOM | Gravity.CENTER_HORIZONTAL));
+        mFixedTrashIconView = new TrashIconView(context);
+        addView(mFixedTrashIconView, new FrameLayout.LayoutParams(0, 0, Gravity.BOTTOM | Gravity.CENTER_HORIZONTAL));
+
+        mTrashIconRect = new Rect();
+        mCaptureRect = new Rect();
+        mIsCaptureRectDirty = true;
+        mScaleInterpolator = new OvershootInterpolator();
 
         // 初回描画処理用
         getViewTreeObserver().addOnPreDrawListener(this);
     }
 
+    /**
+     * Get the background shader shared across the instances.
+     *
+     * @param height height of the background
+     * @return Shader
+     */
+    private static synchronized Shader obtainBackgroundShader(int height) {
+        if (sBackgroundShader == null || sBackgroundShaderHeight != height) {
+            sBackgroundShader = new LinearGradient(0, 0, 0, height, BACKGROUND_START_COLOR, BACKGROUND_END_COLOR, Shader.TileMode.CLAMP);
+            sBackgroundShaderHeight = height;
+        }
+        return sBackgroundShader;
+    }
+
+    /**
+     * Release the background shader shared across the instances.
+     */
+    private static synchronized void releaseBackgroundShader() {
+        sBackgroundShader = null;
+        sBackgroundShaderHeight = 0;
+    }
+
     /**
      * 表示位置を決定します。
      */
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
+        updateTrashIconRect();
         updateViewLayout();
     }
 
@@ -286,7 +390,7 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
     @Override
     public boolean onPreDraw() {
         getViewTreeObserver().removeOnPreDrawListener(this);
-        mTrashIconRootView.setTranslationY(mTrashIconRootView.getMeasuredHeight());
+        setTrashIconTranslation(mFixedTrashIconView.getTranslationX(), mTrashIconRect.height());
         return true;
     }
 
@@ -299,6 +403,68 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
         mTrashViewListener.onUpdateActionTrashIcon();
     }
 
+    /**
+     * Set the translation of the trash icons.
+     *
+     * @param translationX translationX
+     * @param translationY translationY
+     */
+    private void setTrashIconTranslation(float translationX, float translationY) {
+        mFixedTrashIconView.setTranslationX(translationX);
+        mFixedTrashIconView.setTranslationY(translationY);
+        mActionTrashIconView.setTranslationX(translationX);
+        mActionTrashIconView.setTranslationY(translationY);
+    }
+
+    /**
+     * Set the scale of the action trash icon.
+     *
+     * @param scale scale
+     */
+    private void setActionTrashIconScale(float scale) {
+        mActionTrashIconView.setScaleX(scale);
+        mActionTrashIconView.setScaleY(scale);
+    }
+
+    /**
+     * Update the layout rect of the trash icons(bottom center of the view).
+     */
+    private void updateTrashIconRect() {
+        final int iconWidth = mFixedTrashIconView.getLayoutParams().width;
+        final int iconHeight = mFixedTrashIconView.getLayoutParams().height;
+        final int left = (getWidth() - iconWidth) / 2;
+        final int top = getHeight() - iconHeight;
+        mTrashIconRect.set(left, top, left + iconWidth, top + iconHeight);
+        mIsCaptureRectDirty = true;
+    }
+
+    /**
+     * Update the size of the trash icon views(the icons are centered in the largest icon bounds).
+     */
+    private void updateTrashIconSize() {
+        int iconWidth = 0;
+        int iconHeight = 0;
+        if (mActionTrashIcon != null) {
+            iconWidth = mActionTrashIcon.getBounds().width();
+            iconHeight = mActionTrashIcon.getBounds().height();
+        }
+        if (mFixedTrashIcon != null) {
+            iconWidth = Math.max(iconWidth, mFixedTrashIcon.getBounds().width());
+            iconHeight = Math.max(iconHeight, mFixedTrashIcon.getBounds().height());
+        }
+        final ViewGroup.LayoutParams params = mFixedTrashIconView.getLayoutParams();
+        if (params.width != iconWidth || params.height != iconHeight) {
+            params.width = iconWidth;
+            params.height = iconHeight;
+            mFixedTrashIconView.setLayoutParams(params);
+            final ViewGroup.LayoutParams actionParams = mActionTrashIconView.getLayoutParams();
+            actionParams.width = iconWidth;
+            actionParams.height = iconHeight;
+            mActionTrashIconView.setLayoutParams(actionParams);
+        }
+        updateTrashIconRect();
+    }
+
     /**
      * 画面サイズから自位置を決定します。
      */
@@ -306,6 +472,7 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
         mWindowManager.getDefaultDisplay().getMetrics(mMetrics);
         mParams.x = (mMetrics.widthPixels - getWidth()) / 2;
         mParams.y = 0;
+        mIsCaptureRectDirty = true;
 
         // Update view and layout
         mTrashViewListener.onUpdateActionTrashIcon();
@@ -333,20 +500,38 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
      * @param outRect 変更を加えるRect
      */
     void getWindowDrawingRect(Rect outRect) {
+        // INFO:The capture rect only changes with the layout, the icons or the translation, so it is cached
+        final float translationX = mFixedTrashIconView.getTranslationX();
+        final float translationY = mFixedTrashIconView.getTranslationY();
+        if (mIsCaptureRectDirty || mCaptureTranslationX != translationX || mCaptureTranslationY != translationY) {
+            updateCaptureRect(translationX, translationY);
+        }
+        outRect.set(mCaptureRect);
+    }
+
+    /**
+     * Recalculate the capture rect.
+     *
+     * @param translationX translationX of the trash icons
+     * @param translationY translationY of the trash icons
+     */
+    private void updateCaptureRect(float translationX, float translationY) {
+        mIsCaptureRectDirty = false;
+        mCaptureTranslationX = translationX;
+        mCaptureTranslationY = translationY;
         // Gravityが逆向きなので、矩形の当たり判定も上下逆転(top/bottom)
         // top(画面上で下方向)の判定を多めに設定
-        final ImageView iconView = hasActionTrashIcon() ? mActionTrashIconView : mFixedTrashIconView;
-        final float iconPaddingLeft = iconView.getPaddingLeft();
-        final float iconPaddingTop = iconView.getPaddingTop();
-        final float iconWidth = iconView.getWidth() - iconPaddingLeft - iconView.getPaddingRight();
-        final float iconHeight = iconView.getHeight() - iconPaddingTop - iconView.getPaddingBottom();
-        final float x = mTrashIconRootView.getX() + iconPaddingLeft;
-        final float y = mRootView.getHeight() - mTrashIconRootView.getY() - iconPaddingTop - iconHeight;
+        // INFO:The bottom of the window is the bottom of the screen, so the height of the window is the offset from the bottom
+        final Drawable icon = hasActionTrashIcon() ? mActionTrashIcon : mFixedTrashIcon;
+        final float iconWidth = icon != null ? icon.getBounds().width() : 0;
+        final float iconHeight = icon != null ? icon.getBounds().height() : 0;
+        final float x = mTrashIconRect.exactCenterX() + translationX - iconWidth / 2;
+        final float y = getHeight() - (mTrashIconRect.exactCenterY() + translationY) - iconHeight / 2;
         final int left = (int) (x - TARGET_CAPTURE_HORIZONTAL_REGION * mMetrics.density);
-        final int top = -mRootView.getHeight();
+        final int top = -mMetrics.heightPixels;
         final int right = (int) (x + iconWidth + TARGET_CAPTURE_HORIZONTAL_REGION * mMetrics.density);
         final int bottom = (int) (y + iconHeight + TARGET_CAPTURE_VERTICAL_REGION * mMetrics.density);
-        outRect.set(left, top, right, bottom);
+        mCaptureRect.set(left, top, right, bottom);
     }
 
     /**
@@ -361,20 +546,55 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
         if (!hasActionTrashIcon()) {
             return;
         }
-        // 拡大率の設定
         mAnimationHandler.mTargetWidth = width;
         mAnimationHandler.mTargetHeight = height;
+        // Nothing has changed since the last update
+        final boolean hasAnimators = mEnterScaleAnimator != null && mExitScaleAnimator != null;
+        if (hasAnimators && mScaleTargetWidth == width && mScaleTargetHeight == height && mScaleTargetShape == shape) {
+            return;
+        }
+        mScaleTargetWidth = width;
+        mScaleTargetHeight = height;
+        mScaleTargetShape = shape;
+
+        // 拡大率の設定
         final float newWidthScale = width / mActionTrashIconBaseWidth * shape;
         final float newHeightScale = height / mActionTrashIconBaseHeight * shape;
-        mActionTrashIconMaxScale = Math.max(newWidthScale, newHeightScale);
-        // ENTERアニメーション作成
-        mEnterScaleAnimator = ObjectAnimator.ofPropertyValuesHolder(mActionTrashIconView, PropertyValuesHolder.ofFloat(ImageView.SCALE_X, mActionTrashIconMaxScale), PropertyValuesHolder.ofFloat(ImageView.SCALE_Y, mActionTrashIconMaxScale));
-        mEnterScaleAnimator.setInterpolator(new OvershootInterpolator());
-        mEnterScaleAnimator.setDuration(TRASH_ICON_SCALE_DURATION_MILLIS);
-        // Exitアニメーション作成
-        mExitScaleAnimator = ObjectAnimator.ofPropertyValuesHolder(mActionTrashIconView, PropertyValuesHolder.ofFloat(ImageView.SCALE_X, 1.0f), PropertyValuesHolder.ofFloat(ImageView.SCALE_Y, 1.0f));
-        mExitScaleAnimator.setInterpolator(new OvershootInterpolator());
-        mExitScaleAnimator.setDuration(TRASH_ICON_SCALE_DURATION_MILLIS);
+        final float newMaxScale = Math.max(newWidthScale, newHeightScale);
+        if (hasAnimators && mActionTrashIconMaxScale == newMaxScale) {
+            return;
+        }
+        mActionTrashIconMaxScale = newMaxScale;
+        updateActionTrashIconResolution();
+
+        // the animators are created once and only their target value is updated
+        if (mEnterScaleAnimator == null) {
+            // ENTERアニメーション作成
+            mEnterScaleAnimator = ObjectAnimator.ofPropertyValuesHolder(mActionTrashIconView, createScaleValues(mActionTrashIconMaxScale));
+            mEnterScaleAnimator.setInterpolator(mScaleInterpolator);
+            mEnterScaleAnimator.setDuration(TRASH_ICON_SCALE_DURATION_MILLIS);
+        } else {
+            mEnterScaleAnimator.setValues(createScaleValues(mActionTrashIconMaxScale));
+        }
+        if (mExitScaleAnimator == null) {
+            // Exitアニメーション作成
+            mExitScaleAnimator = ObjectAnimator.ofPropertyValuesHolder(mActionTrashIconView, createScaleValues(1.0f));
+            mExitScaleAnimator.setInterpolator(mScaleInterpolator);
+            mExitScaleAnimator.setDuration(TRASH_ICON_SCALE_DURATION_MILLIS);
+        }
+    }
+
+    /**
+     * Create the values of the scale animation(scaleX and scaleY).
+     *
+     * @param scale end value
+     * @return PropertyValuesHolder
+     */
+    private static PropertyValuesHolder[] createScaleValues(float scale) {
+        return new PropertyValuesHolder[]{
+                PropertyValuesHolder.ofFloat(View.SCALE_X, scale),
+                PropertyValuesHolder.ofFloat(View.SCALE_Y, scale)
+        };
     }
 
     /**
@@ -383,11 +603,7 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
      * @return 削除アイコンの中心X座標
      */
     float getTrashIconCenterX() {
-        final ImageView iconView = hasActionTrashIcon() ? mActionTrashIconView : mFixedTrashIconView;
-        final float iconViewPaddingLeft = iconView.getPaddingLeft();
-        final float iconWidth = iconView.getWidth() - iconViewPaddingLeft - iconView.getPaddingRight();
-        final float x = mTrashIconRootView.getX() + iconViewPaddingLeft;
-        return x + iconWidth / 2;
+        return mTrashIconRect.exactCenterX() + mFixedTrashIconView.getTranslationX();
     }
 
     /**
@@ -396,15 +612,9 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
      * @return 削除アイコンの中心Y座標
      */
     float getTrashIconCenterY() {
-        final ImageView iconView = hasActionTrashIcon() ? mActionTrashIconView : mFixedTrashIconView;
-        final float iconViewHeight = iconView.getHeight();
-        final float iconViewPaddingBottom = iconView.getPaddingBottom();
-        final float iconHeight = iconViewHeight - iconView.getPaddingTop() - iconViewPaddingBottom;
-        final float y = mRootView.getHeight() - mTrashIconRootView.getY() - iconViewHeight + iconViewPaddingBottom;
-        return y + iconHeight / 2;
+        return getHeight() - (mTrashIconRect.exactCenterY() + mFixedTrashIconView.getTranslationY());
     }
 
-
     /**
      * アクションする削除アイコンが存在するかチェックします。
      *
@@ -421,7 +631,8 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
      * @param resId drawable ID
      */
     void setFixedTrashIconImage(int resId) {
-        mFixedTrashIconView.setImageResource(resId);
+        mFixedTrashIconResId = resId;
+        applyFixedTrashIconImage(loadTrashIcon(resId, 0, 0));
     }
 
     /**
@@ -431,12 +642,8 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
      * @param resId drawable ID
      */
     void setActionTrashIconImage(int resId) {
-        mActionTrashIconView.setImageResource(resId);
-        final Drawable drawable = mActionTrashIconView.getDrawable();
-        if (drawable != null) {
-            mActionTrashIconBaseWidth = drawable.getIntrinsicWidth();
-            mActionTrashIconBaseHeight = drawable.getIntrinsicHeight();
-        }
+        mActionTrashIconResId = resId;
+        applyActionTrashIconImage(loadTrashIcon(resId, 0, 0));
     }
 
     /**
@@ -446,7 +653,18 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
      * @param drawable Drawable
      */
     void setFixedTrashIconImage(Drawable drawable) {
-        mFixedTrashIconView.setImageDrawable(drawable);
+        mFixedTrashIconResId = 0;
+        applyFixedTrashIconImage(drawable);
+    }
+
+    /**
+     * Apply the fixed trash icon.
+     *
+     * @param drawable Drawable
+     */
+    private void applyFixedTrashIconImage(Drawable drawable) {
+        mFixedTrashIcon = prepareTrashIcon(mFixedTrashIconView, drawable);
+        updateTrashIconSize();
     }
 
     /**
@@ -456,13 +674,80 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
      * @param drawable Drawable
      */
     void setActionTrashIconImage(Drawable drawable) {
-        mActionTrashIconView.setImageDrawable(drawable);
+        mActionTrashIconResId = 0;
+        applyActionTrashIconImage(drawable);
+    }
+
+    /**
+     * Apply the action trash icon.
+     *
+     * @param drawable Drawable
+     */
+    private void applyActionTrashIconImage(Drawable drawable) {
+        mActionTrashIcon = prepareTrashIcon(mActionTrashIconView, drawable);
         if (drawable != null) {
             mActionTrashIconBaseWidth = drawable.getIntrinsicWidth();
             mActionTrashIconBaseHeight = drawable.getIntrinsicHeight();
+            // the max scale depends on the base size
+            mScaleTargetWidth = 0;
+        }
+        updateTrashIconSize();
+    }
+
+    /**
+     * Load the trash icon from the process-wide cache(decoded at the displayed size).
+     *
+     * @param resId        drawable ID
+     * @param targetWidth  displayed width(px). 0 is the intrinsic width
+     * @param targetHeight displayed height(px). 0 is the intrinsic height
+     * @return Drawable
+     */
+    private Drawable loadTrashIcon(int resId, int targetWidth, int targetHeight) {
+        final Bitmap bitmap = TrashIconCache.getBitmap(getResources(), resId, targetWidth, targetHeight);
+        if (bitmap == null) {
+            // not a bitmap(e.g. vector drawable)
+            return ContextCompat.getDrawable(getContext(), resId);
+        }
+        return new BitmapDrawable(getResources(), bitmap);
+    }
+
+    /**
+     * Decode the action trash icon at the maximum displayed size(base size * mActionTrashIconMaxScale).<br/>
+     * The bounds stay at the base size, so the layout and the scale do not change.
+     */
+    private void updateActionTrashIconResolution() {
+        if (mActionTrashIconResId == 0 || !(mActionTrashIcon instanceof BitmapDrawable)) {
+            return;
+        }
+        final float scale = Math.max(mActionTrashIconMaxScale, 1.0f);
+        final int targetWidth = Math.round(mActionTrashIconBaseWidth * scale);
+        final int targetHeight = Math.round(mActionTrashIconBaseHeight * scale);
+        final Bitmap currentBitmap = ((BitmapDrawable) mActionTrashIcon).getBitmap();
+        if (currentBitmap != null && currentBitmap.getWidth() == targetWidth && currentBitmap.getHeight() == targetHeight) {
+            return;
+        }
+        mActionTrashIcon = prepareTrashIcon(mActionTrashIconView, loadTrashIcon(mActionTrashIconResId, targetWidth, targetHeight));
+        if (mActionTrashIcon != null) {
+            mActionTrashIcon.setBounds(0, 0, mActionTrashIconBaseWidth, mActionTrashIconBaseHeight);
         }
     }
 
+    /**
+     * Replace the trash icon drawable of the view and set its bounds to the intrinsic size.
+     *
+     * @param iconView    TrashIconView
+     * @param newDrawable new Drawable
+     * @return new Drawable
+     */
+    private Drawable prepareTrashIcon(TrashIconView iconView, Drawable newDrawable) {
+        mIsCaptureRectDirty = true;
+        if (newDrawable != null) {
+            newDrawable.setBounds(0, 0, Math.max(newDrawable.getIntrinsicWidth(), 0), Math.max(newDrawable.getIntrinsicHeight(), 0));
+        }
+        iconView.setTrashIcon(newDrawable);
+        return newDrawable;
+    }
+
     /**
      * 削除アイコンの大きさを即時に変更します。
      *
@@ -471,8 +756,7 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
     private void setScaleTrashIconImmediately(boolean isEnter) {
         cancelScaleTrashAnimation();
 
-        mActionTrashIconView.setScaleX(isEnter ? mActionTrashIconMaxScale : 1.0f);
-        mActionTrashIconView.setScaleY(isEnter ? mActionTrashIconMaxScale : 1.0f);
+        setActionTrashIconScale(isEnter ? mActionTrashIconMaxScale : 1.0f);
     }
 
     /**
@@ -489,6 +773,12 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
         // アニメーションをキャンセル
         cancelScaleTrashAnimation();
 
+        // rebuilt on the next ACTION_DOWN after onTrimMemory
+        if (mEnterScaleAnimator == null || mExitScaleAnimator == null) {
+            setScaleTrashIconImmediately(isEnter);
+            return;
+        }
+
         // 領域に入った場合
         if (isEnter) {
             mEnterScaleAnimator.start();
@@ -524,6 +814,80 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
         return mIsEnabled;
     }
 
+    /**
+     * Set the animation quality tier.
+     * On QUALITY_TIER_LOW, the background alpha fade is skipped.
+     * On QUALITY_TIER_LOW_POWER, the trash is also revealed and closed instantly.
+     *
+     * @param qualityTier QUALITY_TIER_XXX
+     */
+    void setQualityTier(@FloatingViewManager.QualityTier int qualityTier) {
+        mQualityTier = qualityTier;
+    }
+
+    /**
+     * Check whether the background alpha fade is skipped.
+     *
+     * @return true if the fade is skipped
+     */
+    private boolean isSkipBackgroundFade() {
+        return mQualityTier >= FloatingViewManager.QUALITY_TIER_LOW;
+    }
+
+    /**
+     * Check whether the low power profile is used(instant reveal).
+     *
+     * @return true if QUALITY_TIER_LOW_POWER
+     */
+    private boolean isLowPower() {
+        return mQualityTier == FloatingViewManager.QUALITY_TIER_LOW_POWER;
+    }
+
+    /**
+     * Release the resources that can be rebuilt(trash icons loaded by resource ID, scale animators and the background shader).<br/>
+     * Nothing is released while the trash is animating or without memory pressure. They are rebuilt on the next ACTION_DOWN.
+     *
+     * @param level ComponentCallbacks2.TRIM_MEMORY_XXX
+     */
+    void onTrimMemory(int level) {
+        if (!FloatingViewManager.isMemoryPressure(level) || !mAnimationHandler.isAnimationStarted(ANIMATION_NONE)) {
+            return;
+        }
+        cancelScaleTrashAnimation();
+        mEnterScaleAnimator = null;
+        mExitScaleAnimator = null;
+        mBackgroundView.releaseShader();
+        releaseBackgroundShader();
+        if (mFixedTrashIconResId != 0) {
+            mFixedTrashIcon = prepareTrashIcon(mFixedTrashIconView, null);
+        }
+        if (mActionTrashIconResId != 0) {
+            mActionTrashIcon = prepareTrashIcon(mActionTrashIconView, null);
+        }
+        mIsResourceReleased = true;
+    }
+
+    /**
+     * Rebuild the resources released by onTrimMemory.
+     */
+    private void rebuildResources() {
+        if (!mIsResourceReleased) {
+            return;
+        }
+        mIsResourceReleased = false;
+        if (mFixedTrashIconResId != 0) {
+            applyFixedTrashIconImage(loadTrashIcon(mFixedTrashIconResId, 0, 0));
+        }
+        if (mActionTrashIconResId != 0) {
+            applyActionTrashIconImage(loadTrashIcon(mActionTrashIconResId, 0, 0));
+        }
+        mAnimationHandler.onUpdateViewLayout();
+        // scale animators
+        if (mTrashViewListener != null) {
+            mTrashViewListener.onUpdateActionTrashIcon();
+        }
+    }
+
     /**
      * 削除アイコンの拡大・縮小アニメーションのキャンセル
      */
@@ -568,6 +932,7 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
         final int action = event.getAction();
         // 押下
         if (action == MotionEvent.ACTION_DOWN) {
+            rebuildResources();
             mAnimationHandler.updateTargetPosition(x, y);
             // 長押し処理待ち
             mAnimationHandler.removeMessages(ANIMATION_CLOSE);
@@ -576,6 +941,7 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
         // 移動
         else if (action == MotionEvent.ACTION_MOVE) {
             mAnimationHandler.updateTargetPosition(x, y);
+            mAnimationHandler.updateStickyPosition();
             // まだオープンアニメーションが開始していない場合のみ実行
             if (!mAnimationHandler.isAnimationStarted(ANIMATION_OPEN)) {
                 // 長押しのメッセージを削除
@@ -593,14 +959,135 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
     }
 
     /**
-     * アニメーションの制御を行うハンドラです。
+     * View of the background gradient.
+     * INFO:The fade only changes the alpha property of this view, so the gradient is not redrawn on each frame.
      */
-    static class AnimationHandler extends Handler {
+    private static class BackgroundView extends View {
 
         /**
-         * アニメーションをリフレッシュするミリ秒
+         * Paint of the background(the shader is set when the size is decided)
          */
-        private static final long ANIMATION_REFRESH_TIME_MILLIS = 10L;
+        private final Paint mPaint;
+
+        /**
+         * コンストラクタ
+         *
+         * @param context Context
+         */
+        BackgroundView(Context context) {
+            super(context);
+            mPaint = new Paint();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+            super.onSizeChanged(w, h, oldw, oldh);
+            mPaint.setShader(obtainBackgroundShader(h));
+        }
+
+        /**
+         * Draw the background gradient.
+         */
+        @Override
+        protected void onDraw(Canvas canvas) {
+            if (mPaint.getShader() == null) {
+                mPaint.setShader(obtainBackgroundShader(getHeight()));
+            }
+            canvas.drawRect(0, 0, getWidth(), getHeight(), mPaint);
+        }
+
+        /**
+         * The alpha is applied to the single rect without an offscreen buffer.
+         */
+        @Override
+        public boolean hasOverlappingRendering() {
+            return false;
+        }
+
+        /**
+         * Release the background shader(obtained again on the next draw).
+         */
+        void releaseShader() {
+            mPaint.setShader(null);
+        }
+    }
+
+    /**
+     * View of a trash icon.
+     * The icon is drawn at the center of the view, so the scale is applied around the center of the icon.
+     */
+    private static class TrashIconView extends View {
+
+        /**
+         * Trash icon
+         */
+        private Drawable mTrashIcon;
+
+        /**
+         * コンストラクタ
+         *
+         * @param context Context
+         */
+        TrashIconView(Context context) {
+            super(context);
+        }
+
+        /**
+         * Set the trash icon.
+         *
+         * @param drawable Drawable(nullable)
+         */
+        void setTrashIcon(Drawable drawable) {
+            if (mTrashIcon != null) {
+                mTrashIcon.setCallback(null);
+            }
+            mTrashIcon = drawable;
+            if (drawable != null) {
+                drawable.setCallback(this);
+            }
+            invalidate();
+        }
+
+        /**
+         * Draw the trash icon.
+         */
+        @Override
+        protected void onDraw(Canvas canvas) {
+            if (mTrashIcon == null) {
+                return;
+            }
+            final Rect bounds = mTrashIcon.getBounds();
+            final int saveCount = canvas.save();
+            canvas.translate((getWidth() - bounds.width()) / 2f, (getHeight() - bounds.height()) / 2f);
+            mTrashIcon.draw(canvas);
+            canvas.restoreToCount(saveCount);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected boolean verifyDrawable(@NonNull Drawable who) {
+            return who == mTrashIcon || super.verifyDrawable(who);
+        }
+
+        /**
+         * The alpha is applied to the single icon without an offscreen buffer.
+         */
+        @Override
+        public boolean hasOverlappingRendering() {
+            return false;
+        }
+    }
+
+    /**
+     * アニメーションの制御を行うハンドラです。
+     * INFO:The animations are performed by ViewPropertyAnimator on the view properties, so the handler only starts them.
+     */
+    static class AnimationHandler extends Handler {
 
         /**
          * 背景のアニメーション時間
@@ -637,15 +1124,6 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
          */
         private static final int TRASH_MOVE_LIMIT_TOP_OFFSET = -4;
 
-        /**
-         * アニメーション開始を表す定数
-         */
-        private static final int TYPE_FIRST = 1;
-        /**
-         * アニメーション更新を表す定数
-         */
-        private static final int TYPE_UPDATE = 2;
-
         /**
          * アルファの最大値
          */
@@ -657,19 +1135,9 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
         private static final float MIN_ALPHA = 0.0f;
 
         /**
-         * アニメーションを開始した時間
+         * Time when the reveal animation of the trash icon ends
          */
-        private long mStartTime;
-
-        /**
-         * アニメーションを始めた時点のアルファ値
-         */
-        private float mStartAlpha;
-
-        /**
-         * アニメーションを始めた時点のTransitionY
-         */
-        private float mStartTransitionY;
+        private long mRevealEndTime;
 
         /**
          * 実行中のアニメーションのコード
@@ -711,6 +1179,15 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
          */
         private final OvershootInterpolator mOvershootInterpolator;
 
+        /**
+         * LinearInterpolator
+         */
+        private final LinearInterpolator mLinearInterpolator;
+
+        /**
+         * Listener of the close animation
+         */
+        private final AnimatorListenerAdapter mCloseAnimatorListener;
 
         /**
          * TrashView
@@ -720,11 +1197,37 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
         /**
          * コンストラクタ
          */
-        AnimationHandler(TrashView trashView) {
+        AnimationHandler(TrashView trashView, Looper looper) {
+            super(looper);
             mTrashView = new WeakReference<>(trashView);
             mStartedCode = ANIMATION_NONE;
             mTrashIconLimitPosition = new Rect();
             mOvershootInterpolator = new OvershootInterpolator(OVERSHOOT_TENSION);
+            mLinearInterpolator = new LinearInterpolator();
+            mCloseAnimatorListener = new AnimatorListenerAdapter() {
+
+                /**
+                 * Cancel flag(the close animation was replaced by another animation)
+                 */
+                private boolean mIsCanceled;
+
+                @Override
+                public void onAnimationStart(Animator animation) {
+                    mIsCanceled = false;
+                }
+
+                @Override
+                public void onAnimationCancel(Animator animation) {
+                    mIsCanceled = true;
+                }
+
+                @Override
+                public void onAnimationEnd(Animator animation) {
+                    if (!mIsCanceled) {
+                        onCloseAnimationEnd();
+                    }
+                }
+            };
         }
 
         /**
@@ -746,87 +1249,27 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
             }
 
             final int animationCode = msg.what;
-            final int animationType = msg.arg1;
-            final FrameLayout backgroundView = trashView.mBackgroundView;
-            final FrameLayout trashIconRootView = trashView.mTrashIconRootView;
             final TrashViewListener listener = trashView.mTrashViewListener;
-            final float screenWidth = trashView.mMetrics.widthPixels;
-            final float trashViewX = trashView.mParams.x;
 
             // アニメーションを開始した場合の初期化
-            if (animationType == TYPE_FIRST) {
-                mStartTime = SystemClock.uptimeMillis();
-                mStartAlpha = backgroundView.getAlpha();
-                mStartTransitionY = trashIconRootView.getTranslationY();
-                mStartedCode = animationCode;
-                if (listener != null) {
-                    listener.onTrashAnimationStarted(mStartedCode);
-                }
+            mStartedCode = animationCode;
+            if (listener != null) {
+                listener.onTrashAnimationStarted(animationCode);
             }
-            // 経過時間
-            final float elapsedTime = SystemClock.uptimeMillis() - mStartTime;
 
             // 表示アニメーション
             if (animationCode == ANIMATION_OPEN) {
-                final float currentAlpha = backgroundView.getAlpha();
-                // 最大のアルファ値に達していない場合
-                if (currentAlpha < MAX_ALPHA) {
-                    final float alphaTimeRate = Math.min(elapsedTime / BACKGROUND_DURATION_MILLIS, 1.0f);
-                    final float alpha = Math.min(mStartAlpha + alphaTimeRate, MAX_ALPHA);
-                    backgroundView.setAlpha(alpha);
-                }
-
-                // DelayTimeを超えていたらアニメーション開始
-                if (elapsedTime >= TRASH_OPEN_START_DELAY_MILLIS) {
-                    final float screenHeight = trashView.mMetrics.heightPixels;
-                    // アイコンが左右に全部はみ出たらそれぞれ0%、100%の計算
-                    final float positionX = trashViewX + (mTargetPositionX + mTargetWidth) / (screenWidth + mTargetWidth) * mTrashIconLimitPosition.width() + mTrashIconLimitPosition.left;
-                    // 削除アイコンのY座標アニメーションと追従（上方向がマイナス）
-                    // targetPositionYRateは、ターゲットのY座標が完全に画面外になると0%、画面の半分以降は100%
-                    // stickyPositionYは移動限界の下端が原点で上端まで移動する。mMoveStickyRangeが追従の範囲
-                    // positionYの計算により時間経過とともに移動する
-                    final float targetPositionYRate = Math.min(2 * (mTargetPositionY + mTargetHeight) / (screenHeight + mTargetHeight), 1.0f);
-                    final float stickyPositionY = mMoveStickyYRange * targetPositionYRate + mTrashIconLimitPosition.height() - mMoveStickyYRange;
-                    final float translationYTimeRate = Math.min((elapsedTime - TRASH_OPEN_START_DELAY_MILLIS) / TRASH_OPEN_DURATION_MILLIS, 1.0f);
-                    final float positionY = mTrashIconLimitPosition.bottom - stickyPositionY * mOvershootInterpolator.getInterpolation(translationYTimeRate);
-                    trashIconRootView.setTranslationX(positionX);
-                    trashIconRootView.setTranslationY(positionY);
-                    // clear drag view garbage
-                    if (Build.VERSION.SDK_INT <= Build.VERSION_CODES.JELLY_BEAN_MR1) {
-                        clearClippedChildren(trashView.mRootView);
-                        clearClippedChildren(trashView.mTrashIconRootView);
-                    }
-                }
-
-                sendMessageAtTime(newMessage(animationCode, TYPE_UPDATE), SystemClock.uptimeMillis() + ANIMATION_REFRESH_TIME_MILLIS);
+                startOpenAnimation(trashView);
             }
             // 非表示アニメーション
             else if (animationCode == ANIMATION_CLOSE) {
-                // アルファ値の計算
-                final float alphaElapseTimeRate = Math.min(elapsedTime / BACKGROUND_DURATION_MILLIS, 1.0f);
-                final float alpha = Math.max(mStartAlpha - alphaElapseTimeRate, MIN_ALPHA);
-                backgroundView.setAlpha(alpha);
-
-                // 削除アイコンのY座標アニメーション
-                final float translationYTimeRate = Math.min(elapsedTime / TRASH_CLOSE_DURATION_MILLIS, 1.0f);
-                // アニメーションが最後まで到達していない場合
-                if (alphaElapseTimeRate < 1.0f || translationYTimeRate < 1.0f) {
-                    final float position = mStartTransitionY + mTrashIconLimitPosition.height() * translationYTimeRate;
-                    trashIconRootView.setTranslationY(position);
-                    sendMessageAtTime(newMessage(animationCode, TYPE_UPDATE), SystemClock.uptimeMillis() + ANIMATION_REFRESH_TIME_MILLIS);
-                } else {
-                    // 位置を強制的に調整
-                    trashIconRootView.setTranslationY(mTrashIconLimitPosition.bottom);
-                    mStartedCode = ANIMATION_NONE;
-                    if (listener != null) {
-                        listener.onTrashAnimationEnd(ANIMATION_CLOSE);
-                    }
-                }
+                startCloseAnimation(trashView);
             }
             // 即時非表示
             else if (animationCode == ANIMATION_FORCE_CLOSE) {
-                backgroundView.setAlpha(0.0f);
-                trashIconRootView.setTranslationY(mTrashIconLimitPosition.bottom);
+                cancelAnimators(trashView);
+                trashView.mBackgroundView.setAlpha(MIN_ALPHA);
+                trashView.setTrashIconTranslation(trashView.mFixedTrashIconView.getTranslationX(), mTrashIconLimitPosition.bottom);
                 mStartedCode = ANIMATION_NONE;
                 if (listener != null) {
                     listener.onTrashAnimationEnd(ANIMATION_FORCE_CLOSE);
@@ -835,45 +1278,170 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
         }
 
         /**
-         * Clear the animation garbage of the target view.
+         * Start the open animation.
+         * The background fades in, then the trash icon pops up to the sticky position.
+         *
+         * @param trashView TrashView
          */
-        private static void clearClippedChildren(ViewGroup viewGroup) {
-            viewGroup.setClipChildren(true);
-            viewGroup.invalidate();
-            viewGroup.setClipChildren(false);
+        private void startOpenAnimation(TrashView trashView) {
+            final View backgroundView = trashView.mBackgroundView;
+            final boolean isLowPower = trashView.isLowPower();
+
+            // 背景のフェードイン
+            final float startAlpha = backgroundView.getAlpha();
+            final long alphaDuration = trashView.isSkipBackgroundFade() ? 0 : (long) (BACKGROUND_DURATION_MILLIS * (MAX_ALPHA - startAlpha));
+            startAnimation(backgroundView.animate().alpha(MAX_ALPHA), alphaDuration, 0, mLinearInterpolator, null);
+
+            // 削除アイコンのポップ(instant reveal on the low power profile)
+            final long startDelay = isLowPower ? 0 : TRASH_OPEN_START_DELAY_MILLIS;
+            final long duration = isLowPower ? 0 : TRASH_OPEN_DURATION_MILLIS;
+            mRevealEndTime = SystemClock.uptimeMillis() + startDelay + duration;
+            trashView.setTrashIconTranslation(getStickyPositionX(trashView), trashView.mFixedTrashIconView.getTranslationY());
+            startTrashIconAnimation(trashView, getStickyPositionY(trashView), duration, startDelay, mOvershootInterpolator, null);
         }
 
         /**
-         * アニメーションのメッセージを送信します。
+         * Start the close animation.
          *
-         * @param animation   ANIMATION_OPEN,ANIMATION_CLOSE,ANIMATION_FORCE_CLOSE
-         * @param delayMillis メッセージの送信時間
+         * @param trashView TrashView
          */
-        void sendAnimationMessageDelayed(int animation, long delayMillis) {
-            sendMessageAtTime(newMessage(animation, TYPE_FIRST), SystemClock.uptimeMillis() + delayMillis);
+        private void startCloseAnimation(TrashView trashView) {
+            final View backgroundView = trashView.mBackgroundView;
+            final boolean isLowPower = trashView.isLowPower();
+
+            // 背景のフェードアウト
+            final float startAlpha = backgroundView.getAlpha();
+            final long alphaDuration = trashView.isSkipBackgroundFade() ? 0 : (long) (BACKGROUND_DURATION_MILLIS * (startAlpha - MIN_ALPHA));
+            startAnimation(backgroundView.animate().alpha(MIN_ALPHA), alphaDuration, 0, mLinearInterpolator, null);
+
+            // 削除アイコンを隠す(the end of this animation is the end of the close animation)
+            final long duration = isLowPower ? 0 : TRASH_CLOSE_DURATION_MILLIS;
+            startTrashIconAnimation(trashView, mTrashIconLimitPosition.bottom, Math.max(duration, alphaDuration), 0, mLinearInterpolator, mCloseAnimatorListener);
+        }
+
+        /**
+         * Cancel the animations of the background and the trash icons.
+         *
+         * @param trashView TrashView
+         */
+        private static void cancelAnimators(TrashView trashView) {
+            trashView.mBackgroundView.animate().cancel();
+            trashView.mFixedTrashIconView.animate().cancel();
+            trashView.mActionTrashIconView.animate().cancel();
+        }
+
+        /**
+         * Move the trash icons to translationY together.
+         *
+         * @param trashView    TrashView
+         * @param translationY end value
+         * @param duration     duration(ms)
+         * @param startDelay   start delay(ms)
+         * @param interpolator TimeInterpolator
+         * @param listener     Animator.AnimatorListener(nullable, notified by the fixed trash icon)
+         */
+        private static void startTrashIconAnimation(TrashView trashView, float translationY, long duration, long startDelay, TimeInterpolator interpolator, Animator.AnimatorListener listener) {
+            startAnimation(trashView.mActionTrashIconView.animate().translationY(translationY), duration, startDelay, interpolator, null);
+            startAnimation(trashView.mFixedTrashIconView.animate().translationY(translationY), duration, startDelay, interpolator, listener);
+        }
+
+        /**
+         * Start the ViewPropertyAnimator.
+         * INFO:ViewPropertyAnimator keeps the settings between the animations, so all of them are set every time.
+         *
+         * @param animator     ViewPropertyAnimator
+         * @param duration     duration(ms)
+         * @param startDelay   start delay(ms)
+         * @param interpolator TimeInterpolator
+         * @param listener     Animator.AnimatorListener(nullable)
+         */
+        private static void startAnimation(ViewPropertyAnimator animator, long duration, long startDelay, TimeInterpolator interpolator, Animator.AnimatorListener listener) {
+            animator.setDuration(duration)
+                    .setStartDelay(startDelay)
+                    .setInterpolator(interpolator)
+                    .setListener(listener)
+                    .start();
+        }
+
+        /**
+         * Called when the close animation has finished.
+         */
+        private void onCloseAnimationEnd() {
+            final TrashView trashView = mTrashView.get();
+            if (trashView == null || mStartedCode != ANIMATION_CLOSE) {
+                return;
+            }
+            mStartedCode = ANIMATION_NONE;
+            final TrashViewListener listener = trashView.mTrashViewListener;
+            if (listener != null) {
+                listener.onTrashAnimationEnd(ANIMATION_CLOSE);
+            }
+        }
+
+        /**
+         * Make the trash icon follow the target(called for each touch event during the open animation).
+         */
+        void updateStickyPosition() {
+            final TrashView trashView = mTrashView.get();
+            if (trashView == null || mStartedCode != ANIMATION_OPEN) {
+                return;
+            }
+            // While the icon pops up, only the X coordinate follows the target
+            if (SystemClock.uptimeMillis() < mRevealEndTime) {
+                final float translationX = getStickyPositionX(trashView);
+                trashView.mFixedTrashIconView.setTranslationX(translationX);
+                trashView.mActionTrashIconView.setTranslationX(translationX);
+                return;
+            }
+            trashView.setTrashIconTranslation(getStickyPositionX(trashView), getStickyPositionY(trashView));
+        }
+
+        /**
+         * Get the X coordinate of the trash icon following the target.
+         * アイコンが左右に全部はみ出たらそれぞれ0%、100%の計算
+         *
+         * @param trashView TrashView
+         * @return translationX
+         */
+        private float getStickyPositionX(TrashView trashView) {
+            final float screenWidth = trashView.mMetrics.widthPixels;
+            final float trashViewX = trashView.mParams.x;
+            return trashViewX + (mTargetPositionX + mTargetWidth) / (screenWidth + mTargetWidth) * mTrashIconLimitPosition.width() + mTrashIconLimitPosition.left;
+        }
+
+        /**
+         * Get the Y coordinate of the trash icon following the target.
+         * 削除アイコンのY座標アニメーションと追従（上方向がマイナス）
+         * targetPositionYRateは、ターゲットのY座標が完全に画面外になると0%、画面の半分以降は100%
+         * stickyPositionYは移動限界の下端が原点で上端まで移動する。mMoveStickyRangeが追従の範囲
+         *
+         * @param trashView TrashView
+         * @return translationY
+         */
+        private float getStickyPositionY(TrashView trashView) {
+            final float screenHeight = trashView.mMetrics.heightPixels;
+            final float targetPositionYRate = Math.min(2 * (mTargetPositionY + mTargetHeight) / (screenHeight + mTargetHeight), 1.0f);
+            final float stickyPositionY = mMoveStickyYRange * targetPositionYRate + mTrashIconLimitPosition.height() - mMoveStickyYRange;
+            return mTrashIconLimitPosition.bottom - stickyPositionY;
         }
 
         /**
          * アニメーションのメッセージを送信します。
          *
-         * @param animation ANIMATION_OPEN,ANIMATION_CLOSE,ANIMATION_FORCE_CLOSE
+         * @param animation   ANIMATION_OPEN,ANIMATION_CLOSE,ANIMATION_FORCE_CLOSE
+         * @param delayMillis メッセージの送信時間
          */
-        void sendAnimationMessage(int animation) {
-            sendMessage(newMessage(animation, TYPE_FIRST));
+        void sendAnimationMessageDelayed(int animation, long delayMillis) {
+            sendEmptyMessageAtTime(animation, SystemClock.uptimeMillis() + delayMillis);
         }
 
         /**
-         * 送信するメッセージを生成します。
+         * アニメーションのメッセージを送信します。
          *
          * @param animation ANIMATION_OPEN,ANIMATION_CLOSE,ANIMATION_FORCE_CLOSE
-         * @param type      TYPE_FIRST,TYPE_UPDATE
-         * @return Message
          */
-        private static Message newMessage(int animation, int type) {
-            final Message message = Message.obtain();
-            message.what = animation;
-            message.arg1 = type;
-            return message;
+        void sendAnimationMessage(int animation) {
+            sendEmptyMessage(animation);
         }
 
         /**
@@ -905,12 +1473,12 @@ class TrashView extends FrameLayout implements ViewTreeObserver.OnPreDrawListene
             if (trashView == null) {
                 return;
             }
-            // 削除アイコン(TrashIconRootView)の移動限界設定(Gravityの基準位置を元に計算）
-            // 左下原点（画面下端（パディング含む）：0、上方向：マイナス、下方向：プラス）で、Y軸上限は削除アイコンが背景の中心に来る位置、下限はTrashIconRootViewが全部隠れる位置
+            // 削除アイコンの移動限界設定(Gravityの基準位置を元に計算）
+            // 左下原点（画面下端（パディング含む）：0、上方向：マイナス、下方向：プラス）で、Y軸上限は削除アイコンが背景の中心に来る位置、下限は削除アイコンが全部隠れる位置
             final float density = trashView.mMetrics.density;
-            final float backgroundHeight = trashView.mBackgroundView.getMeasuredHeight();
+            final float backgroundHeight = trashView.getHeight();
             final float offsetX = TRASH_MOVE_LIMIT_OFFSET_X * density;
-            final int trashIconHeight = trashView.mTrashIconRootView.getMeasuredHeight();
+            final int trashIconHeight = trashView.mTrashIconRect.height();
             final int left = (int) -offsetX;
             final int top = (int) ((trashIconHeight - backgroundHeight) / 2 - TRASH_MOVE_LIMIT_TOP_OFFSET * density);
             final int right = (int) offsetX;
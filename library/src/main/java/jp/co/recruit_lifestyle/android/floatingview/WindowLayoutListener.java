@@ -0,0 +1,37 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+/**
+ * Listener of the window layout of the FloatingView.
+ */
+interface WindowLayoutListener {
+
+    /**
+     * Callback when the window layout of the FloatingView has been committed to the WindowManager.
+     *
+     * @param floatingView FloatingView
+     */
+    void onWindowLayoutCommitted(FloatingView floatingView);
+
+    /**
+     * Callback when the FloatingView has settled(all the move animations and the touch have finished).
+     *
+     * @param floatingView FloatingView
+     */
+    void onWindowLayoutSettled(FloatingView floatingView);
+}
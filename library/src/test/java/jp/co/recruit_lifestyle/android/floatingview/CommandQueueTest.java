@@ -0,0 +1,149 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link CommandQueue}.<br/>
+ * The test runs on the UI thread of Robolectric, so drain can be called directly.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CommandQueueTest {
+
+    private CommandQueue mCommandQueue;
+
+    private List<String> mRunList;
+
+    @Before
+    public void setUp() {
+        ShadowLooper.pauseMainLooper();
+        mCommandQueue = new CommandQueue(new Handler(Looper.getMainLooper()));
+        mRunList = new ArrayList<>();
+    }
+
+    @Test
+    public void drainInOrder() {
+        mCommandQueue.enqueue(null, record("a"));
+        mCommandQueue.enqueue(null, record("b"));
+        mCommandQueue.enqueue(null, record("c"));
+        assertTrue(mRunList.isEmpty());
+        mCommandQueue.drain();
+        assertEquals(Arrays.asList("a", "b", "c"), mRunList);
+    }
+
+    @Test
+    public void sameKeyIsCollapsedToLast() {
+        mCommandQueue.enqueue("key", record("first"));
+        mCommandQueue.enqueue(null, record("other"));
+        mCommandQueue.enqueue("key", record("last"));
+        mCommandQueue.drain();
+        assertEquals(Arrays.asList("other", "last"), mRunList);
+    }
+
+    @Test
+    public void differentKeysAreNotCollapsed() {
+        mCommandQueue.enqueue("key1", record("a"));
+        mCommandQueue.enqueue("key2", record("b"));
+        mCommandQueue.drain();
+        assertEquals(Arrays.asList("a", "b"), mRunList);
+    }
+
+    @Test
+    public void keyIsReusableAfterDrain() {
+        mCommandQueue.enqueue("key", record("a"));
+        mCommandQueue.drain();
+        mCommandQueue.enqueue("key", record("b"));
+        mCommandQueue.drain();
+        assertEquals(Arrays.asList("a", "b"), mRunList);
+    }
+
+    @Test
+    public void drainFromCommandIsIgnored() {
+        mCommandQueue.enqueue(null, new Runnable() {
+            @Override
+            public void run() {
+                mRunList.add("outer");
+                mCommandQueue.enqueue(null, record("inner"));
+                mCommandQueue.drain();
+                mRunList.add("outer end");
+            }
+        });
+        mCommandQueue.drain();
+        assertEquals(Arrays.asList("outer", "outer end", "inner"), mRunList);
+    }
+
+    @Test
+    public void clearDiscardsCommands() {
+        mCommandQueue.enqueue("key", record("a"));
+        mCommandQueue.enqueue(null, record("b"));
+        mCommandQueue.clear();
+        mCommandQueue.drain();
+        assertTrue(mRunList.isEmpty());
+    }
+
+    @Test
+    public void commandFromOtherThreadRunsOnUiThread() throws InterruptedException {
+        final List<Boolean> isUiThreadList = Collections.synchronizedList(new ArrayList<Boolean>());
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                mCommandQueue.enqueue(null, new Runnable() {
+                    @Override
+                    public void run() {
+                        isUiThreadList.add(Looper.myLooper() == Looper.getMainLooper());
+                    }
+                });
+            }
+        });
+        thread.start();
+        thread.join();
+        assertTrue(isUiThreadList.isEmpty());
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(Collections.singletonList(true), isUiThreadList);
+    }
+
+    /**
+     * Create the task recording its name.
+     *
+     * @param name name of the task
+     * @return task
+     */
+    private Runnable record(final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                mRunList.add(name);
+            }
+        };
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests of {@link EdgeSlotAllocator}.
+ */
+public class EdgeSlotAllocatorTest {
+
+    private static final int SIZE = 50;
+
+    private static final int MIN_POSITION = 0;
+
+    private static final int MAX_POSITION = 1000;
+
+    private EdgeSlotAllocator<String> mAllocator;
+
+    @Before
+    public void setUp() {
+        mAllocator = new EdgeSlotAllocator<>();
+    }
+
+    @Test
+    public void allocateFreeGoal() {
+        assertEquals(100, allocate("a", false, 100));
+    }
+
+    @Test
+    public void allocateNearestFreePositionAbove() {
+        allocate("a", false, 100);
+        assertEquals(150, allocate("b", false, 110));
+    }
+
+    @Test
+    public void allocateNearestFreePositionBelow() {
+        allocate("a", false, 100);
+        assertEquals(50, allocate("b", false, 90));
+    }
+
+    @Test
+    public void allocateOverSeveralSlots() {
+        allocate("a", false, 100);
+        allocate("b", false, 150);
+        allocate("c", false, 200);
+        assertEquals(250, allocate("d", false, 190));
+    }
+
+    @Test
+    public void edgesAreIndependent() {
+        allocate("a", false, 100);
+        assertEquals(100, allocate("b", true, 100));
+    }
+
+    @Test
+    public void releaseFreesSlot() {
+        allocate("a", false, 100);
+        mAllocator.release("a");
+        assertEquals(100, allocate("b", false, 100));
+    }
+
+    @Test
+    public void allocateAgainReleasesPreviousSlot() {
+        allocate("a", false, 100);
+        assertEquals(120, allocate("a", false, 120));
+        assertEquals(170, allocate("b", false, 150));
+    }
+
+    @Test
+    public void goalIsClampedToRange() {
+        assertEquals(MAX_POSITION, allocate("a", false, MAX_POSITION + 100));
+        assertEquals(MIN_POSITION, allocate("b", false, MIN_POSITION - 100));
+    }
+
+    @Test
+    public void noFreeSpaceReturnsGoal() {
+        assertEquals(0, mAllocator.allocate("a", false, 0, SIZE, 0, 50));
+        assertEquals(50, mAllocator.allocate("b", false, 50, SIZE, 0, 50));
+        assertEquals(25, mAllocator.allocate("c", false, 25, SIZE, 0, 50));
+        // the overlapping position is not registered
+        mAllocator.release("b");
+        assertEquals(50, mAllocator.allocate("d", false, 50, SIZE, 0, 50));
+    }
+
+    @Test
+    public void clearReleasesAllSlots() {
+        allocate("a", false, 100);
+        allocate("b", true, 100);
+        mAllocator.clear();
+        assertEquals(100, allocate("c", false, 100));
+        assertEquals(100, allocate("d", true, 100));
+    }
+
+    /**
+     * Allocate the slot of SIZE between MIN_POSITION and MAX_POSITION.
+     *
+     * @param owner        owner
+     * @param isRightEdge  true if the right edge
+     * @param goalPosition goal position
+     * @return allocated position
+     */
+    private int allocate(String owner, boolean isRightEdge, int goalPosition) {
+        return mAllocator.allocate(owner, isRightEdge, goalPosition, SIZE, MIN_POSITION, MAX_POSITION);
+    }
+}
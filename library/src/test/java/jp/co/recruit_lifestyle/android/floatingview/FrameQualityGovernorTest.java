@@ -0,0 +1,150 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.content.Context;
+import android.view.WindowManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests of the hysteresis of {@link FrameQualityGovernor}.<br/>
+ * The frames are fed with doFrame directly(the frame callbacks posted to the paused looper are never run).
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FrameQualityGovernorTest {
+
+    /**
+     * Number of frames in one measurement window
+     */
+    private static final int WINDOW_FRAMES = 30;
+
+    /**
+     * Interval of an on-time frame(ns, 60Hz)
+     */
+    private static final long ON_TIME_INTERVAL_NANOS = 16_000_000L;
+
+    /**
+     * Interval of a late frame(ns)
+     */
+    private static final long LATE_INTERVAL_NANOS = 40_000_000L;
+
+    private FrameQualityGovernor mGovernor;
+
+    private List<Integer> mQualityTierList;
+
+    private long mFrameTimeNanos;
+
+    @Before
+    public void setUp() {
+        ShadowLooper.pauseMainLooper();
+        mQualityTierList = new ArrayList<>();
+        final WindowManager windowManager = (WindowManager) RuntimeEnvironment.application.getSystemService(Context.WINDOW_SERVICE);
+        mGovernor = new FrameQualityGovernor(windowManager, new QualityTierListener() {
+            @Override
+            public void onQualityTierChanged(int qualityTier) {
+                mQualityTierList.add(qualityTier);
+            }
+        });
+        mGovernor.start();
+        // the first frame only starts the measurement
+        mFrameTimeNanos = 1_000_000_000L;
+        mGovernor.doFrame(mFrameTimeNanos);
+    }
+
+    @Test
+    public void degradeAfterConsecutiveBadWindows() {
+        runWindow(WINDOW_FRAMES);
+        assertEquals(FloatingViewManager.QUALITY_TIER_HIGH, mGovernor.getQualityTier());
+        runWindow(WINDOW_FRAMES);
+        assertEquals(FloatingViewManager.QUALITY_TIER_MEDIUM, mGovernor.getQualityTier());
+        assertEquals(Collections.singletonList(FloatingViewManager.QUALITY_TIER_MEDIUM), mQualityTierList);
+    }
+
+    @Test
+    public void goodWindowBreaksBadWindows() {
+        runWindow(WINDOW_FRAMES);
+        runWindow(0);
+        runWindow(WINDOW_FRAMES);
+        assertEquals(FloatingViewManager.QUALITY_TIER_HIGH, mGovernor.getQualityTier());
+        assertEquals(0, mQualityTierList.size());
+    }
+
+    @Test
+    public void windowBetweenThresholdsKeepsCounts() {
+        // 5 of 30 late frames is neither bad nor good
+        runWindow(WINDOW_FRAMES);
+        runWindow(5);
+        runWindow(WINDOW_FRAMES);
+        assertEquals(FloatingViewManager.QUALITY_TIER_MEDIUM, mGovernor.getQualityTier());
+    }
+
+    @Test
+    public void recoverOnlyAfterMoreGoodWindows() {
+        runWindow(WINDOW_FRAMES);
+        runWindow(WINDOW_FRAMES);
+        for (int i = 0; i < 5; i++) {
+            runWindow(0);
+        }
+        assertEquals(FloatingViewManager.QUALITY_TIER_MEDIUM, mGovernor.getQualityTier());
+        runWindow(0);
+        assertEquals(FloatingViewManager.QUALITY_TIER_HIGH, mGovernor.getQualityTier());
+        assertEquals(Arrays.asList(FloatingViewManager.QUALITY_TIER_MEDIUM, FloatingViewManager.QUALITY_TIER_HIGH), mQualityTierList);
+    }
+
+    @Test
+    public void degradeStopsAtLowTier() {
+        for (int i = 0; i < 10; i++) {
+            runWindow(WINDOW_FRAMES);
+        }
+        assertEquals(FloatingViewManager.QUALITY_TIER_LOW, mGovernor.getQualityTier());
+        assertEquals(Arrays.asList(FloatingViewManager.QUALITY_TIER_MEDIUM, FloatingViewManager.QUALITY_TIER_LOW), mQualityTierList);
+    }
+
+    @Test
+    public void resetRestoresHighTier() {
+        runWindow(WINDOW_FRAMES);
+        runWindow(WINDOW_FRAMES);
+        mGovernor.reset();
+        assertEquals(FloatingViewManager.QUALITY_TIER_HIGH, mGovernor.getQualityTier());
+        assertEquals(Arrays.asList(FloatingViewManager.QUALITY_TIER_MEDIUM, FloatingViewManager.QUALITY_TIER_HIGH), mQualityTierList);
+    }
+
+    /**
+     * Feed one measurement window.
+     *
+     * @param lateFrameCount number of late frames in the window
+     */
+    private void runWindow(int lateFrameCount) {
+        for (int i = 0; i < WINDOW_FRAMES; i++) {
+            mFrameTimeNanos += i < lateFrameCount ? LATE_INTERVAL_NANOS : ON_TIME_INTERVAL_NANOS;
+            mGovernor.doFrame(mFrameTimeNanos);
+        }
+    }
+}
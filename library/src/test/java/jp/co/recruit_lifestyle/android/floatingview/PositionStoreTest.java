@@ -0,0 +1,181 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the file format of {@link PositionStore}.
+ */
+public class PositionStoreTest {
+
+    /**
+     * Magic number of the file
+     */
+    private static final int FILE_MAGIC = 0x46565053;
+
+    /**
+     * Configuration.ORIENTATION_PORTRAIT
+     */
+    private static final int ORIENTATION_PORTRAIT = 1;
+
+    /**
+     * Configuration.ORIENTATION_LANDSCAPE
+     */
+    private static final int ORIENTATION_LANDSCAPE = 2;
+
+    @Test
+    public void readWrittenEntries() throws IOException {
+        final byte[] data = write(Arrays.asList(
+                createEntry("chat", ORIENTATION_PORTRAIT, 10, 20, 100, 120),
+                createEntry("chat", ORIENTATION_LANDSCAPE, -30, 40, 0, 0)));
+        final Map<String, PositionStore.Entry> entryMap = new HashMap<>();
+        PositionStore.readEntries(toInput(data), entryMap);
+        assertEquals(2, entryMap.size());
+        assertEntry(entryMap.get(PositionStore.toKey("chat", ORIENTATION_PORTRAIT)), 10, 20, 100, 120);
+        assertEntry(entryMap.get(PositionStore.toKey("chat", ORIENTATION_LANDSCAPE)), -30, 40, 0, 0);
+    }
+
+    @Test
+    public void readPositionOnlyVersion() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(FILE_MAGIC);
+        out.writeInt(1);
+        out.writeInt(1);
+        out.writeUTF("chat");
+        out.writeByte(ORIENTATION_PORTRAIT);
+        out.writeInt(10);
+        out.writeInt(20);
+        out.flush();
+        final Map<String, PositionStore.Entry> entryMap = new HashMap<>();
+        PositionStore.readEntries(toInput(bytes.toByteArray()), entryMap);
+        assertEquals(1, entryMap.size());
+        assertEntry(entryMap.get(PositionStore.toKey("chat", ORIENTATION_PORTRAIT)), 10, 20, 0, 0);
+    }
+
+    @Test
+    public void ignoreUnknownVersion() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(FILE_MAGIC);
+        out.writeInt(3);
+        out.writeInt(1);
+        out.writeUTF("chat");
+        out.flush();
+        final Map<String, PositionStore.Entry> entryMap = new HashMap<>();
+        PositionStore.readEntries(toInput(bytes.toByteArray()), entryMap);
+        assertTrue(entryMap.isEmpty());
+    }
+
+    @Test
+    public void ignoreOtherMagic() throws IOException {
+        final byte[] data = write(Arrays.asList(createEntry("chat", ORIENTATION_PORTRAIT, 10, 20, 100, 120)));
+        data[0] = 0;
+        final Map<String, PositionStore.Entry> entryMap = new HashMap<>();
+        PositionStore.readEntries(toInput(data), entryMap);
+        assertTrue(entryMap.isEmpty());
+    }
+
+    @Test
+    public void truncatedFileKeepsCompleteEntries() throws IOException {
+        final byte[] data = write(Arrays.asList(
+                createEntry("first", ORIENTATION_PORTRAIT, 10, 20, 100, 120),
+                createEntry("second", ORIENTATION_PORTRAIT, 30, 40, 100, 120)));
+        // cut in the middle of the second entry
+        final byte[] truncatedData = Arrays.copyOf(data, data.length - 6);
+        final Map<String, PositionStore.Entry> entryMap = new HashMap<>();
+        try {
+            PositionStore.readEntries(toInput(truncatedData), entryMap);
+            fail("EOFException is expected");
+        } catch (EOFException e) {
+            // expected
+        }
+        assertEquals(1, entryMap.size());
+        assertEntry(entryMap.get(PositionStore.toKey("first", ORIENTATION_PORTRAIT)), 10, 20, 100, 120);
+    }
+
+    @Test
+    public void truncatedHeaderReadsNothing() throws IOException {
+        final byte[] data = write(Arrays.asList(createEntry("chat", ORIENTATION_PORTRAIT, 10, 20, 100, 120)));
+        final Map<String, PositionStore.Entry> entryMap = new HashMap<>();
+        try {
+            PositionStore.readEntries(toInput(Arrays.copyOf(data, 6)), entryMap);
+            fail("EOFException is expected");
+        } catch (EOFException e) {
+            // expected
+        }
+        assertTrue(entryMap.isEmpty());
+    }
+
+    /**
+     * Create the layout.
+     */
+    private static PositionStore.Entry createEntry(String bubbleId, int orientation, int x, int y, int width, int height) {
+        final PositionStore.Entry entry = new PositionStore.Entry(bubbleId, orientation);
+        entry.x = x;
+        entry.y = y;
+        entry.width = width;
+        entry.height = height;
+        return entry;
+    }
+
+    /**
+     * Write the layouts in the file format.
+     */
+    private static byte[] write(List<PositionStore.Entry> entryList) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        PositionStore.writeEntries(out, entryList);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Wrap the bytes in a stream.
+     */
+    private static DataInputStream toInput(byte[] data) {
+        return new DataInputStream(new ByteArrayInputStream(data));
+    }
+
+    /**
+     * Check the layout.
+     */
+    private static void assertEntry(PositionStore.Entry entry, int x, int y, int width, int height) {
+        assertNotNull(entry);
+        assertEquals(x, entry.x);
+        assertEquals(y, entry.y);
+        assertEquals(width, entry.width);
+        assertEquals(height, entry.height);
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2015 RECRUIT LIFESTYLE CO., LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jp.co.recruit_lifestyle.android.floatingview;
+
+import android.graphics.Rect;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link SpatialGrid}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SpatialGridTest {
+
+    private static final int CELL_SIZE = 100;
+
+    private SpatialGrid<String> mGrid;
+
+    private List<String> mResultList;
+
+    @Before
+    public void setUp() {
+        mGrid = new SpatialGrid<>(CELL_SIZE);
+        mResultList = new ArrayList<>();
+    }
+
+    @Test
+    public void queryPointInCell() {
+        mGrid.insert("a", new Rect(10, 10, 50, 50));
+        mGrid.insert("b", new Rect(110, 10, 150, 50));
+        mGrid.query(90, 90, mResultList);
+        assertEquals(Arrays.asList("a"), mResultList);
+    }
+
+    @Test
+    public void queryPointInEveryCellOfSpanningItem() {
+        mGrid.insert("a", new Rect(50, 50, 250, 150));
+        mGrid.query(10, 10, mResultList);
+        mGrid.query(210, 110, mResultList);
+        assertEquals(Arrays.asList("a", "a"), mResultList);
+    }
+
+    @Test
+    public void queryRectAddsItemOnce() {
+        mGrid.insert("a", new Rect(50, 50, 250, 250));
+        mGrid.insert("b", new Rect(450, 450, 480, 480));
+        mGrid.query(new Rect(0, 0, 300, 300), mResultList);
+        assertEquals(Arrays.asList("a"), mResultList);
+    }
+
+    @Test
+    public void queryRectKeepsExistingItems() {
+        mGrid.insert("a", new Rect(50, 50, 250, 250));
+        mResultList.add("a");
+        mGrid.query(new Rect(0, 0, 300, 300), mResultList);
+        assertEquals(Arrays.asList("a", "a"), mResultList);
+    }
+
+    @Test
+    public void removeFromEveryCell() {
+        final Rect bounds = new Rect(50, 50, 250, 250);
+        mGrid.insert("a", bounds);
+        mGrid.remove("a", bounds);
+        mGrid.query(new Rect(0, 0, 300, 300), mResultList);
+        assertTrue(mResultList.isEmpty());
+    }
+
+    @Test
+    public void moveToOtherCells() {
+        final Rect oldBounds = new Rect(10, 10, 50, 50);
+        final Rect newBounds = new Rect(510, 510, 550, 550);
+        mGrid.insert("a", oldBounds);
+        mGrid.move("a", oldBounds, newBounds);
+        mGrid.query(30, 30, mResultList);
+        assertTrue(mResultList.isEmpty());
+        mGrid.query(530, 530, mResultList);
+        assertEquals(Arrays.asList("a"), mResultList);
+    }
+
+    @Test
+    public void moveInSameCellsKeepsItem() {
+        final Rect oldBounds = new Rect(10, 10, 50, 50);
+        mGrid.insert("a", oldBounds);
+        mGrid.move("a", oldBounds, new Rect(20, 20, 60, 60));
+        mGrid.query(30, 30, mResultList);
+        assertEquals(Arrays.asList("a"), mResultList);
+    }
+
+    @Test
+    public void negativeCoordinatesAreSeparateCells() {
+        mGrid.insert("a", new Rect(-50, -50, -10, -10));
+        mGrid.query(10, 10, mResultList);
+        assertTrue(mResultList.isEmpty());
+        mGrid.query(-30, -30, mResultList);
+        assertEquals(Arrays.asList("a"), mResultList);
+    }
+
+    @Test
+    public void clearRemovesAllItems() {
+        mGrid.insert("a", new Rect(10, 10, 50, 50));
+        mGrid.insert("b", new Rect(210, 210, 250, 250));
+        mGrid.clear();
+        mGrid.query(new Rect(0, 0, 300, 300), mResultList);
+        assertTrue(mResultList.isEmpty());
+    }
+}
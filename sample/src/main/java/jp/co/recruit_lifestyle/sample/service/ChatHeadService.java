@@ -39,6 +39,11 @@ public class ChatHeadService extends Service implements FloatingViewListener {
      */
     private static final int NOTIFICATION_ID = 9083150;
 
+    /**
+     * Bubble ID(the chat head comes back at the last position after the service is recreated)
+     */
+    private static final String BUBBLE_ID = "chathead";
+
     /**
      * FloatingViewManager
      */
@@ -72,6 +77,7 @@ public class ChatHeadService extends Service implements FloatingViewListener {
         mFloatingViewManager.setSafeInsetRect((Rect) intent.getParcelableExtra(EXTRA_CUTOUT_SAFE_AREA));
         final FloatingViewManager.Options options = new FloatingViewManager.Options();
         options.overMargin = (int) (16 * metrics.density);
+        options.bubbleId = BUBBLE_ID;
         mFloatingViewManager.addViewToWindow(iconView, options);
 
         // 常駐起動
@@ -89,6 +95,17 @@ public class ChatHeadService extends Service implements FloatingViewListener {
         super.onDestroy();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (mFloatingViewManager != null) {
+            mFloatingViewManager.onTrimMemory(level);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
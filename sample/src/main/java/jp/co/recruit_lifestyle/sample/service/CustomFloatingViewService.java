@@ -41,14 +41,9 @@ public class CustomFloatingViewService extends Service implements FloatingViewLi
     private static final int NOTIFICATION_ID = 908114;
 
     /**
-     * Prefs Key(Last position X)
+     * Bubble ID(used to save the last position)
      */
-    private static final String PREF_KEY_LAST_POSITION_X = "last_position_x";
-
-    /**
-     * Prefs Key(Last position Y)
-     */
-    private static final String PREF_KEY_LAST_POSITION_Y = "last_position_y";
+    private static final String BUBBLE_ID = "custom";
 
     /**
      * FloatingViewManager
@@ -86,6 +81,8 @@ public class CustomFloatingViewService extends Service implements FloatingViewLi
         mFloatingViewManager.setFixedTrashIconImage(R.drawable.ic_trash_fixed);
         mFloatingViewManager.setActionTrashIconImage(R.drawable.ic_trash_action);
         mFloatingViewManager.setSafeInsetRect((Rect) intent.getParcelableExtra(EXTRA_CUTOUT_SAFE_AREA));
+        // Call the listeners out of the touch events
+        mFloatingViewManager.setListenerDispatchMode(FloatingViewManager.LISTENER_DISPATCH_NEXT_FRAME);
         // Setting Options(you can change options at any time)
         loadDynamicOptions();
         // Initial Setting Options (you can't change options after created.)
@@ -107,6 +104,17 @@ public class CustomFloatingViewService extends Service implements FloatingViewLi
         super.onDestroy();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (mFloatingViewManager != null) {
+            mFloatingViewManager.onTrimMemory(level);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -129,13 +137,7 @@ public class CustomFloatingViewService extends Service implements FloatingViewLi
      */
     @Override
     public void onTouchFinished(boolean isFinishing, int x, int y) {
-        if (!isFinishing) {
-            // Save the last position
-            final SharedPreferences.Editor editor = PreferenceManager.getDefaultSharedPreferences(this).edit();
-            editor.putInt(PREF_KEY_LAST_POSITION_X, x);
-            editor.putInt(PREF_KEY_LAST_POSITION_Y, y);
-            editor.apply();
-        }
+        // The last position is saved by FloatingViewManager(Options#bubbleId)
     }
 
     /**
@@ -229,10 +231,8 @@ public class CustomFloatingViewService extends Service implements FloatingViewLi
         // Last position
         final boolean isUseLastPosition = sharedPref.getBoolean("settings_save_last_position", false);
         if (isUseLastPosition) {
-            final int defaultX = options.floatingViewX;
-            final int defaultY = options.floatingViewY;
-            options.floatingViewX = sharedPref.getInt(PREF_KEY_LAST_POSITION_X, defaultX);
-            options.floatingViewY = sharedPref.getInt(PREF_KEY_LAST_POSITION_Y, defaultY);
+            // restored without blocking(see Options#bubbleId)
+            options.bubbleId = BUBBLE_ID;
         } else {
             // Init X/Y
             final String initXSettings = sharedPref.getString("settings_init_x", "");